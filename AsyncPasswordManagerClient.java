@@ -0,0 +1,183 @@
+package com.passwordmanager.client;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import com.passwordmanager.common.ChangeSet;
+import com.passwordmanager.common.Mutation;
+import com.passwordmanager.common.MutationResult;
+import com.passwordmanager.common.PasswordEntry;
+import com.passwordmanager.common.PasswordPage;
+import com.passwordmanager.common.VaultEvent;
+import com.passwordmanager.common.VaultListener;
+
+/**
+ * Non-blocking facade over {@link PasswordManagerClient}: every call runs on a dedicated pool and returns
+ * a {@link CompletableFuture}, so that a UI thread never waits for the server.
+ * A call that does not complete within the timeout fails with a {@link java.util.concurrent.TimeoutException}.
+ * Cancelling a future, or its timeout, interrupts the call if it is still running.
+ * The application shares one instance ({@link #shared()}) over the shared {@link PasswordManagerClient}.
+ */
+public class AsyncPasswordManagerClient {
+
+    // Overridable with -Dpm.client.threads and -Dpm.client.timeoutSeconds
+    private static final int THREADS = Integer.getInteger("pm.client.threads", 4);
+    private static final long TIMEOUT_SECONDS = Long.getLong("pm.client.timeoutSeconds", 30);
+
+    private static AsyncPasswordManagerClient shared;
+
+    private final PasswordManagerClient client;
+    private final ThreadPoolExecutor executor;
+
+    private interface Call<T> {
+        T call(PasswordManagerClient client) throws Exception;
+    }
+
+    public AsyncPasswordManagerClient(PasswordManagerClient client) {
+        this.client = client;
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(THREADS, THREADS, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "password-client-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Idle threads exit, so a client that is no longer used does not keep any
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @return the client shared by the whole application, created on first use.
+     */
+    public static synchronized AsyncPasswordManagerClient shared() {
+        if (shared == null) {
+            shared = new AsyncPasswordManagerClient(PasswordManagerClient.shared());
+        }
+        return shared;
+    }
+
+    private <T> CompletableFuture<T> submit(Call<T> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> task = executor.submit(() -> {
+            try {
+                result.complete(call.call(client));
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        result.whenComplete((value, error) -> {
+            if (error != null) {
+                task.cancel(true);
+            }
+        });
+        return result.orTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @return the exception a call failed with, without the {@link CompletionException} wrapping it.
+     */
+    public static Throwable causeOf(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Looks the service up in the background, so that the first call does not wait for it.
+     */
+    public CompletableFuture<Void> connect() {
+        return submit(c -> {
+            c.connect();
+            return null;
+        });
+    }
+
+    /**
+     * @return a future of the session token, or of null if the credentials are invalid.
+     */
+    public CompletableFuture<String> login(String username, String password) {
+        return submit(c -> c.login(username, password));
+    }
+
+    public CompletableFuture<Void> logout(String sessionToken) {
+        return submit(c -> {
+            c.logout(sessionToken);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Boolean> register(String username, String password) {
+        return submit(c -> c.register(username, password));
+    }
+
+    public CompletableFuture<Void> addPassword(String sessionToken, PasswordEntry entry) {
+        return submit(c -> {
+            c.addPassword(sessionToken, entry);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> updatePassword(String sessionToken, PasswordEntry entry) {
+        return submit(c -> {
+            c.updatePassword(sessionToken, entry);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> deletePassword(String sessionToken, String website) {
+        return submit(c -> {
+            c.deletePassword(sessionToken, website);
+            return null;
+        });
+    }
+
+    public CompletableFuture<List<MutationResult>> applyBatch(String sessionToken, List<Mutation> mutations) {
+        return submit(c -> c.applyBatch(sessionToken, mutations));
+    }
+
+    public CompletableFuture<ChangeSet> changesSince(String sessionToken, long version) {
+        return submit(c -> c.changesSince(sessionToken, version));
+    }
+
+    public CompletableFuture<List<PasswordEntry>> listPasswords(String sessionToken) {
+        return submit(c -> c.listPasswords(sessionToken));
+    }
+
+    public CompletableFuture<List<PasswordEntry>> listPasswordMetadata(String sessionToken) {
+        return submit(c -> c.listPasswordMetadata(sessionToken));
+    }
+
+    public CompletableFuture<PasswordPage> listPasswordPage(String sessionToken, String cursor, int pageSize) {
+        return submit(c -> c.listPasswordPage(sessionToken, cursor, pageSize));
+    }
+
+    public CompletableFuture<List<PasswordEntry>> searchPasswords(String sessionToken, String query, int limit) {
+        return submit(c -> c.searchPasswords(sessionToken, query, limit));
+    }
+
+    public CompletableFuture<String> revealPassword(String sessionToken, String website) {
+        return submit(c -> c.revealPassword(sessionToken, website));
+    }
+
+    /**
+     * @see PasswordManagerClient#subscribe
+     */
+    public CompletableFuture<VaultListener> subscribe(String sessionToken, Consumer<List<VaultEvent>> consumer) {
+        return submit(c -> c.subscribe(sessionToken, consumer));
+    }
+
+    public CompletableFuture<Void> unsubscribe(String sessionToken, VaultListener listener) {
+        return submit(c -> {
+            c.unsubscribe(sessionToken, listener);
+            return null;
+        });
+    }
+}
@@ -0,0 +1,255 @@
+package com.passwordmanager.common;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Length-prefixed binary protocol offered next to RMI (see BinaryProtocolServer and BinaryProtocolClient).
+ * <pre>
+ * request  := length:int32 requestId:int32 opcode:int8 arguments
+ * response := length:int32 requestId:int32 status:int8 (result | message:string)
+ * string   := length:int32 (-1 for null) UTF-8 bytes
+ * entry    := website:string username:string password:string version:int64
+ * list     := count:int32 element*
+ * </pre>
+ * An error status other than STATUS_ERROR names the {@link RemoteException} subtype of the failure, so that
+ * callers can tell an expired session or a missing entry apart as they do over RMI.
+ * The length counts the bytes after it. A client may send several requests without waiting for their
+ * responses (pipelining); responses carry the request id and may come back in any order.
+ * Arguments and results follow the parameters and return types of {@link PasswordManagerService}.
+ */
+public final class BinaryProtocol {
+
+    public static final int MAX_FRAME_BYTES = 16 * 1024 * 1024;
+
+    public static final byte LOGIN = 1;
+    public static final byte REGISTER = 2;
+    public static final byte LOGOUT = 3;
+    public static final byte ADD_PASSWORD = 4;
+    public static final byte LIST_PASSWORDS = 5;
+    public static final byte LIST_PASSWORD_METADATA = 6;
+    public static final byte LIST_PASSWORD_PAGE = 7;
+    public static final byte SEARCH_PASSWORDS = 8;
+    public static final byte REVEAL_PASSWORD = 9;
+    public static final byte UPDATE_PASSWORD = 10;
+    public static final byte DELETE_PASSWORD = 11;
+    public static final byte APPLY_BATCH = 12;
+    public static final byte CHANGES_SINCE = 13;
+
+    public static final byte STATUS_OK = 0;
+    public static final byte STATUS_ERROR = 1;
+    public static final byte STATUS_SESSION_EXPIRED = 2;
+    public static final byte STATUS_ENTRY_NOT_FOUND = 3;
+    public static final byte STATUS_SERVER_BUSY = 4;
+
+    private BinaryProtocol() {
+    }
+
+    /**
+     * Returns the error status of a response that fails with the given exception.
+     */
+    public static byte errorStatus(RemoteException e) {
+        if (e instanceof SessionExpiredException) {
+            return STATUS_SESSION_EXPIRED;
+        }
+        if (e instanceof EntryNotFoundException) {
+            return STATUS_ENTRY_NOT_FOUND;
+        }
+        if (e instanceof ServerBusyException) {
+            return STATUS_SERVER_BUSY;
+        }
+        return STATUS_ERROR;
+    }
+
+    /**
+     * Rebuilds the exception of an error response from its status and message.
+     */
+    public static RemoteException errorOf(byte status, String message) {
+        switch (status) {
+            case STATUS_SESSION_EXPIRED:
+                return new SessionExpiredException();
+            case STATUS_ENTRY_NOT_FOUND:
+                return new EntryNotFoundException(message);
+            case STATUS_SERVER_BUSY:
+                return new ServerBusyException();
+            default:
+                return new RemoteException(message);
+        }
+    }
+
+    public static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > MAX_FRAME_BYTES) {
+            throw new IOException("Invalid string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static void writeEntry(DataOutput out, PasswordEntry entry) throws IOException {
+        writeString(out, entry.getWebsite());
+        writeString(out, entry.getUsername());
+        writeString(out, entry.getPassword());
+        out.writeLong(entry.getVersion());
+    }
+
+    public static PasswordEntry readEntry(DataInput in) throws IOException {
+        PasswordEntry entry = new PasswordEntry(readString(in), readString(in), readString(in));
+        entry.setVersion(in.readLong());
+        return entry;
+    }
+
+    public static void writeEntries(DataOutput out, List<PasswordEntry> entries) throws IOException {
+        out.writeInt(entries.size());
+        for (PasswordEntry entry : entries) {
+            writeEntry(out, entry);
+        }
+    }
+
+    public static List<PasswordEntry> readEntries(DataInput in) throws IOException {
+        int count = readCount(in);
+        List<PasswordEntry> entries = new ArrayList<>(Math.min(count, 1024));
+        for (int i = 0; i < count; i++) {
+            entries.add(readEntry(in));
+        }
+        return entries;
+    }
+
+    public static void writeStrings(DataOutput out, List<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    public static List<String> readStrings(DataInput in) throws IOException {
+        int count = readCount(in);
+        List<String> values = new ArrayList<>(Math.min(count, 1024));
+        for (int i = 0; i < count; i++) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+
+    /**
+     * mutation := type:int8 (-1 for null) hasEntry:bool [entry] website:string
+     */
+    public static void writeMutations(DataOutput out, List<Mutation> mutations) throws IOException {
+        out.writeInt(mutations.size());
+        for (Mutation mutation : mutations) {
+            if (mutation == null || mutation.getType() == null) {
+                out.writeByte(-1);
+                continue;
+            }
+            out.writeByte(mutation.getType().ordinal());
+            out.writeBoolean(mutation.getEntry() != null);
+            if (mutation.getEntry() != null) {
+                writeEntry(out, mutation.getEntry());
+            }
+            writeString(out, mutation.getWebsite());
+        }
+    }
+
+    public static List<Mutation> readMutations(DataInput in) throws IOException {
+        int count = readCount(in);
+        List<Mutation> mutations = new ArrayList<>(Math.min(count, 1024));
+        for (int i = 0; i < count; i++) {
+            int type = in.readByte();
+            if (type < 0 || type >= Mutation.Type.values().length) {
+                mutations.add(null); // Rejected as invalid by applyBatch
+                continue;
+            }
+            Mutation mutation = new Mutation();
+            mutation.setType(Mutation.Type.values()[type]);
+            if (in.readBoolean()) {
+                mutation.setEntry(readEntry(in));
+            }
+            mutation.setWebsite(readString(in));
+            mutations.add(mutation);
+        }
+        return mutations;
+    }
+
+    /**
+     * result := applied:bool error:string
+     */
+    public static void writeMutationResults(DataOutput out, List<MutationResult> results) throws IOException {
+        out.writeInt(results.size());
+        for (MutationResult result : results) {
+            out.writeBoolean(result.isApplied());
+            writeString(out, result.getError());
+        }
+    }
+
+    public static List<MutationResult> readMutationResults(DataInput in) throws IOException {
+        int count = readCount(in);
+        List<MutationResult> results = new ArrayList<>(Math.min(count, 1024));
+        for (int i = 0; i < count; i++) {
+            boolean applied = in.readBoolean();
+            String error = readString(in);
+            results.add(applied ? MutationResult.applied() : MutationResult.failed(error));
+        }
+        return results;
+    }
+
+    /**
+     * page := entries:list nextCursor:string version:int64
+     */
+    public static void writePage(DataOutput out, PasswordPage page) throws IOException {
+        writeEntries(out, page.getEntries());
+        writeString(out, page.getNextCursor());
+        out.writeLong(page.getVersion());
+    }
+
+    public static PasswordPage readPage(DataInput in) throws IOException {
+        List<PasswordEntry> entries = readEntries(in);
+        String nextCursor = readString(in);
+        return new PasswordPage(entries, nextCursor, in.readLong());
+    }
+
+    /**
+     * changes := version:int64 full:bool changed:list deleted:list
+     */
+    public static void writeChangeSet(DataOutput out, ChangeSet changes) throws IOException {
+        out.writeLong(changes.getVersion());
+        out.writeBoolean(changes.isFull());
+        writeEntries(out, changes.getChanged());
+        writeStrings(out, changes.getDeleted());
+    }
+
+    public static ChangeSet readChangeSet(DataInput in) throws IOException {
+        long version = in.readLong();
+        boolean full = in.readBoolean();
+        List<PasswordEntry> changed = readEntries(in);
+        List<String> deleted = readStrings(in);
+        return full ? ChangeSet.full(version, changed) : ChangeSet.delta(version, changed, deleted);
+    }
+
+    // Counts come from the peer: readers presize their lists to at most 1024 elements and let them grow
+    private static int readCount(DataInput in) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > MAX_FRAME_BYTES) {
+            throw new IOException("Invalid element count " + count);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,255 @@
+package com.passwordmanager.client;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.rmi.ConnectException;
+import java.rmi.RemoteException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.passwordmanager.common.BinaryProtocol;
+import com.passwordmanager.common.ChangeSet;
+import com.passwordmanager.common.Mutation;
+import com.passwordmanager.common.MutationResult;
+import com.passwordmanager.common.PasswordEntry;
+import com.passwordmanager.common.PasswordManagerService;
+import com.passwordmanager.common.PasswordPage;
+import com.passwordmanager.common.VaultListener;
+
+/**
+ * {@link PasswordManagerService} over the {@link BinaryProtocol} instead of RMI, on a single connection.
+ * Calls from several threads are pipelined: each request is written as soon as it is made, and a reader
+ * thread completes the caller waiting for each response, in whatever order responses arrive.
+ */
+public class BinaryProtocolClient implements PasswordManagerService, Closeable {
+
+    private static final long CALL_TIMEOUT_SECONDS = 30;
+
+    private final Socket socket;
+    private final DataOutputStream out;
+    private final DataInputStream in;
+    private final AtomicInteger nextRequestId = new AtomicInteger();
+    private final Map<Integer, CompletableFuture<DataInputStream>> pending = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+    // Set once the connection is lost; later calls fail immediately
+    private volatile IOException failure;
+
+    private interface Arguments {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private interface Result<T> {
+        T read(DataInputStream in) throws IOException;
+    }
+
+    public BinaryProtocolClient(String host, int port) throws IOException {
+        socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        Thread reader = new Thread(this::readResponses, "binary-protocol-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    public boolean isConnected() {
+        return failure == null && !closed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        socket.close();
+    }
+
+    private <T> T call(byte opcode, Arguments arguments, Result<T> result) throws RemoteException {
+        int requestId = nextRequestId.incrementAndGet();
+        CompletableFuture<DataInputStream> response = new CompletableFuture<>();
+        pending.put(requestId, response);
+        if (failure != null) {
+            // The reader may already have failed the pending calls before this one was added.
+            // Nothing was sent, so this is reported like an RMI call that could not connect.
+            pending.remove(requestId);
+            throw new ConnectException("Binary protocol connection closed", failure);
+        }
+        try {
+            ByteArrayOutputStream frame = new ByteArrayOutputStream();
+            DataOutputStream frameOut = new DataOutputStream(frame);
+            frameOut.writeInt(requestId);
+            frameOut.writeByte(opcode);
+            arguments.write(frameOut);
+            frameOut.flush();
+            synchronized (out) {
+                out.writeInt(frame.size());
+                frame.writeTo(out);
+                out.flush();
+            }
+            return result.read(response.get(CALL_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RemoteException ? (RemoteException) e.getCause()
+                    : new RemoteException("Binary protocol call failed", e.getCause());
+        } catch (TimeoutException e) {
+            throw new RemoteException("Binary protocol call timed out");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RemoteException("Interrupted during binary protocol call", e);
+        } catch (IOException e) {
+            throw new RemoteException("Binary protocol connection failed", e);
+        } finally {
+            pending.remove(requestId);
+        }
+    }
+
+    private void readResponses() {
+        try {
+            while (true) {
+                int length = in.readInt();
+                if (length < Integer.BYTES + 1 || length > BinaryProtocol.MAX_FRAME_BYTES) {
+                    throw new IOException("Invalid frame length " + length);
+                }
+                byte[] frame = new byte[length];
+                in.readFully(frame);
+                DataInputStream response = new DataInputStream(new ByteArrayInputStream(frame));
+                int requestId = response.readInt();
+                byte status = response.readByte();
+                CompletableFuture<DataInputStream> caller = pending.remove(requestId);
+                if (caller == null) {
+                    continue; // The caller gave up waiting
+                }
+                if (status == BinaryProtocol.STATUS_OK) {
+                    caller.complete(response);
+                } else {
+                    caller.completeExceptionally(BinaryProtocol.errorOf(status, BinaryProtocol.readString(response)));
+                }
+            }
+        } catch (IOException e) {
+            if (!closed) {
+                System.err.println("Binary protocol connection lost: " + (e instanceof EOFException ? "closed by the server" : e.getMessage()));
+            }
+            failure = e;
+            RemoteException closed = new RemoteException("Binary protocol connection closed", e);
+            pending.values().forEach(caller -> caller.completeExceptionally(closed));
+        }
+    }
+
+    @Override
+    public String login(String username, String password) throws RemoteException {
+        return call(BinaryProtocol.LOGIN, o -> {
+            BinaryProtocol.writeString(o, username);
+            BinaryProtocol.writeString(o, password);
+        }, BinaryProtocol::readString);
+    }
+
+    @Override
+    public boolean register(String username, String password) throws RemoteException {
+        return call(BinaryProtocol.REGISTER, o -> {
+            BinaryProtocol.writeString(o, username);
+            BinaryProtocol.writeString(o, password);
+        }, DataInputStream::readBoolean);
+    }
+
+    @Override
+    public void logout(String sessionToken) throws RemoteException {
+        call(BinaryProtocol.LOGOUT, o -> BinaryProtocol.writeString(o, sessionToken), i -> null);
+    }
+
+    @Override
+    public void addPassword(String sessionToken, PasswordEntry entry) throws RemoteException {
+        call(BinaryProtocol.ADD_PASSWORD, o -> {
+            BinaryProtocol.writeString(o, sessionToken);
+            BinaryProtocol.writeEntry(o, entry);
+        }, i -> null);
+    }
+
+    @Override
+    public List<PasswordEntry> listPasswords(String sessionToken) throws RemoteException {
+        return call(BinaryProtocol.LIST_PASSWORDS, o -> BinaryProtocol.writeString(o, sessionToken), BinaryProtocol::readEntries);
+    }
+
+    @Override
+    public List<PasswordEntry> listPasswordMetadata(String sessionToken) throws RemoteException {
+        return call(BinaryProtocol.LIST_PASSWORD_METADATA, o -> BinaryProtocol.writeString(o, sessionToken), BinaryProtocol::readEntries);
+    }
+
+    @Override
+    public PasswordPage listPasswordPage(String sessionToken, String cursor, int pageSize) throws RemoteException {
+        return call(BinaryProtocol.LIST_PASSWORD_PAGE, o -> {
+            BinaryProtocol.writeString(o, sessionToken);
+            BinaryProtocol.writeString(o, cursor);
+            o.writeInt(pageSize);
+        }, BinaryProtocol::readPage);
+    }
+
+    @Override
+    public List<PasswordEntry> searchPasswords(String sessionToken, String query, int limit) throws RemoteException {
+        return call(BinaryProtocol.SEARCH_PASSWORDS, o -> {
+            BinaryProtocol.writeString(o, sessionToken);
+            BinaryProtocol.writeString(o, query);
+            o.writeInt(limit);
+        }, BinaryProtocol::readEntries);
+    }
+
+    @Override
+    public String revealPassword(String sessionToken, String website) throws RemoteException {
+        return call(BinaryProtocol.REVEAL_PASSWORD, o -> {
+            BinaryProtocol.writeString(o, sessionToken);
+            BinaryProtocol.writeString(o, website);
+        }, BinaryProtocol::readString);
+    }
+
+    @Override
+    public void updatePassword(String sessionToken, PasswordEntry entry) throws RemoteException {
+        call(BinaryProtocol.UPDATE_PASSWORD, o -> {
+            BinaryProtocol.writeString(o, sessionToken);
+            BinaryProtocol.writeEntry(o, entry);
+        }, i -> null);
+    }
+
+    @Override
+    public void deletePassword(String sessionToken, String website) throws RemoteException {
+        call(BinaryProtocol.DELETE_PASSWORD, o -> {
+            BinaryProtocol.writeString(o, sessionToken);
+            BinaryProtocol.writeString(o, website);
+        }, i -> null);
+    }
+
+    @Override
+    public List<MutationResult> applyBatch(String sessionToken, List<Mutation> mutations) throws RemoteException {
+        return call(BinaryProtocol.APPLY_BATCH, o -> {
+            BinaryProtocol.writeString(o, sessionToken);
+            BinaryProtocol.writeMutations(o, mutations);
+        }, BinaryProtocol::readMutationResults);
+    }
+
+    @Override
+    public ChangeSet changesSince(String sessionToken, long version) throws RemoteException {
+        return call(BinaryProtocol.CHANGES_SINCE, o -> {
+            BinaryProtocol.writeString(o, sessionToken);
+            o.writeLong(version);
+        }, BinaryProtocol::readChangeSet);
+    }
+
+    @Override
+    public void subscribe(String sessionToken, VaultListener listener) throws RemoteException {
+        throw new RemoteException("Change notifications are only available over RMI.");
+    }
+
+    @Override
+    public void unsubscribe(String sessionToken, VaultListener listener) throws RemoteException {
+        throw new RemoteException("Change notifications are only available over RMI.");
+    }
+}
@@ -0,0 +1,331 @@
+package com.passwordmanager.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.rmi.RemoteException;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.passwordmanager.common.BinaryProtocol;
+import com.passwordmanager.common.PasswordManagerService;
+
+/**
+ * Non-blocking server for the {@link BinaryProtocol}, dispatching to the same service as RMI.
+ * One selector thread accepts connections, reads request frames and writes responses; requests run
+ * on a worker pool, since service calls may block (hashing, waiting for the write-ahead log).
+ * A connection may pipeline requests: every complete frame is dispatched as soon as it is read,
+ * up to {@link #MAX_IN_FLIGHT} per connection, beyond which reading pauses until responses go out.
+ */
+public class BinaryProtocolServer implements Closeable {
+
+    private static final int MAX_IN_FLIGHT = 256;
+    private static final int INITIAL_BUFFER_BYTES = 64 * 1024;
+
+    private final PasswordManagerService service;
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final ExecutorService workers;
+    // Connections with responses to write, handed from the workers to the selector thread
+    private final Queue<Connection> pendingWrites = new ConcurrentLinkedQueue<>();
+    private final Thread selectorThread;
+    private volatile boolean running = true;
+
+    public BinaryProtocolServer(PasswordManagerService service, int port, int workerThreads) throws IOException {
+        this.service = service;
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        AtomicInteger counter = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerThreads, r -> {
+            Thread thread = new Thread(r, "binary-protocol-worker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.selectorThread = new Thread(this::run, "binary-protocol-selector");
+        selectorThread.setDaemon(true);
+    }
+
+    public void start() {
+        selectorThread.start();
+    }
+
+    /**
+     * @return the port the server listens on, useful when it was created with port 0.
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        selector.wakeup();
+        try {
+            selectorThread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        workers.shutdown();
+        for (SelectionKey key : selector.keys()) {
+            key.channel().close();
+        }
+        selector.close();
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                selector.select();
+                Connection connection;
+                while ((connection = pendingWrites.poll()) != null) {
+                    connection.write();
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        Connection selected = (Connection) key.attachment();
+                        if (key.isReadable()) {
+                            selected.read();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            selected.write();
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("Binary protocol server error: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        Connection connection = new Connection(channel);
+        connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+    }
+
+    /**
+     * State of one client connection. Only the selector thread touches the buffers and the key;
+     * workers only queue responses.
+     */
+    private final class Connection {
+        private final SocketChannel channel;
+        private SelectionKey key;
+        private ByteBuffer readBuffer = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+        private final Queue<ByteBuffer> responses = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        void read() {
+            try {
+                if (channel.read(readBuffer) < 0) {
+                    close();
+                    return;
+                }
+                dispatchFrames();
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        /**
+         * Dispatches every complete frame in the read buffer, unless too many requests are in flight.
+         */
+        private void dispatchFrames() throws IOException {
+            readBuffer.flip();
+            while (readBuffer.remaining() >= Integer.BYTES && inFlight.get() < MAX_IN_FLIGHT) {
+                int length = readBuffer.getInt(readBuffer.position());
+                if (length < Integer.BYTES + 1 || length > BinaryProtocol.MAX_FRAME_BYTES) {
+                    throw new IOException("Invalid frame length " + length);
+                }
+                if (readBuffer.remaining() < Integer.BYTES + length) {
+                    break;
+                }
+                readBuffer.getInt();
+                byte[] frame = new byte[length];
+                readBuffer.get(frame);
+                inFlight.incrementAndGet();
+                try {
+                    workers.execute(() -> respond(frame));
+                } catch (RejectedExecutionException e) {
+                    throw new IOException("Server is shutting down", e);
+                }
+            }
+            int needed = readBuffer.remaining() >= Integer.BYTES ? Integer.BYTES + readBuffer.getInt(readBuffer.position()) : 0;
+            readBuffer.compact();
+            if (needed > readBuffer.capacity()) {
+                ByteBuffer larger = ByteBuffer.allocate(needed);
+                readBuffer.flip();
+                larger.put(readBuffer);
+                readBuffer = larger;
+            }
+            boolean paused = inFlight.get() >= MAX_IN_FLIGHT;
+            key.interestOps(paused ? key.interestOps() & ~SelectionKey.OP_READ : key.interestOps() | SelectionKey.OP_READ);
+        }
+
+        /**
+         * Runs on a worker: executes one request and queues its response for the selector thread.
+         */
+        private void respond(byte[] frame) {
+            responses.add(ByteBuffer.wrap(handle(frame)));
+            pendingWrites.add(this);
+            selector.wakeup();
+        }
+
+        void write() {
+            if (!key.isValid()) {
+                return;
+            }
+            try {
+                ByteBuffer response;
+                int written = 0;
+                while ((response = responses.peek()) != null) {
+                    channel.write(response);
+                    if (response.hasRemaining()) {
+                        key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                        break;
+                    }
+                    responses.poll();
+                    written++;
+                }
+                if (response == null) {
+                    key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+                }
+                if (written > 0 && inFlight.addAndGet(-written) < MAX_IN_FLIGHT) {
+                    dispatchFrames(); // Resume frames held back while the connection was at its limit
+                }
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        private void close() {
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Error closing binary protocol connection: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Executes one request frame (request id, opcode and arguments) against the service.
+     * @return the complete response frame, length prefix included.
+     */
+    private byte[] handle(byte[] frame) {
+        int requestId = 0;
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        byte status = BinaryProtocol.STATUS_OK;
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(frame));
+            requestId = in.readInt();
+            byte opcode = in.readByte();
+            execute(opcode, in, new DataOutputStream(result));
+        } catch (RemoteException e) {
+            status = BinaryProtocol.errorStatus(e);
+            result.reset();
+            writeMessage(result, e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error handling binary protocol request: " + e);
+            status = BinaryProtocol.STATUS_ERROR;
+            result.reset();
+            writeMessage(result, "Invalid request: " + e.getMessage());
+        }
+        ByteBuffer response = ByteBuffer.allocate(Integer.BYTES * 2 + 1 + result.size());
+        response.putInt(Integer.BYTES + 1 + result.size());
+        response.putInt(requestId);
+        response.put(status);
+        response.put(result.toByteArray());
+        return response.array();
+    }
+
+    private void execute(byte opcode, DataInputStream in, DataOutputStream out) throws IOException {
+        switch (opcode) {
+            case BinaryProtocol.LOGIN:
+                BinaryProtocol.writeString(out, service.login(BinaryProtocol.readString(in), BinaryProtocol.readString(in)));
+                break;
+            case BinaryProtocol.REGISTER:
+                out.writeBoolean(service.register(BinaryProtocol.readString(in), BinaryProtocol.readString(in)));
+                break;
+            case BinaryProtocol.LOGOUT:
+                service.logout(BinaryProtocol.readString(in));
+                break;
+            case BinaryProtocol.ADD_PASSWORD:
+                service.addPassword(BinaryProtocol.readString(in), BinaryProtocol.readEntry(in));
+                break;
+            case BinaryProtocol.LIST_PASSWORDS:
+                BinaryProtocol.writeEntries(out, service.listPasswords(BinaryProtocol.readString(in)));
+                break;
+            case BinaryProtocol.LIST_PASSWORD_METADATA:
+                BinaryProtocol.writeEntries(out, service.listPasswordMetadata(BinaryProtocol.readString(in)));
+                break;
+            case BinaryProtocol.LIST_PASSWORD_PAGE:
+                BinaryProtocol.writePage(out, service.listPasswordPage(BinaryProtocol.readString(in), BinaryProtocol.readString(in), in.readInt()));
+                break;
+            case BinaryProtocol.SEARCH_PASSWORDS:
+                BinaryProtocol.writeEntries(out, service.searchPasswords(BinaryProtocol.readString(in), BinaryProtocol.readString(in), in.readInt()));
+                break;
+            case BinaryProtocol.REVEAL_PASSWORD:
+                BinaryProtocol.writeString(out, service.revealPassword(BinaryProtocol.readString(in), BinaryProtocol.readString(in)));
+                break;
+            case BinaryProtocol.UPDATE_PASSWORD:
+                service.updatePassword(BinaryProtocol.readString(in), BinaryProtocol.readEntry(in));
+                break;
+            case BinaryProtocol.DELETE_PASSWORD:
+                service.deletePassword(BinaryProtocol.readString(in), BinaryProtocol.readString(in));
+                break;
+            case BinaryProtocol.APPLY_BATCH:
+                BinaryProtocol.writeMutationResults(out, service.applyBatch(BinaryProtocol.readString(in), BinaryProtocol.readMutations(in)));
+                break;
+            case BinaryProtocol.CHANGES_SINCE:
+                BinaryProtocol.writeChangeSet(out, service.changesSince(BinaryProtocol.readString(in), in.readLong()));
+                break;
+            default:
+                throw new IOException("Unknown opcode " + opcode);
+        }
+        out.flush();
+    }
+
+    private static void writeMessage(ByteArrayOutputStream result, String message) {
+        try {
+            BinaryProtocol.writeString(new DataOutputStream(result), message);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // Not thrown by an in-memory stream
+        }
+    }
+}
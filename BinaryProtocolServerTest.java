@@ -0,0 +1,160 @@
+package com.passwordmanager.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.lang.reflect.Proxy;
+import java.net.Socket;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.passwordmanager.client.BinaryProtocolClient;
+import com.passwordmanager.common.BinaryProtocol;
+import com.passwordmanager.common.EntryNotFoundException;
+import com.passwordmanager.common.PasswordManagerService;
+import com.passwordmanager.common.SessionExpiredException;
+
+public class BinaryProtocolServerTest {
+
+    private BinaryProtocolServer server;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        // Reveals the website's name, slowly for "slow.com", and fails for the "expired" token; deletions always fail
+        PasswordManagerService service = (PasswordManagerService) Proxy.newProxyInstance(
+                PasswordManagerService.class.getClassLoader(), new Class<?>[]{PasswordManagerService.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "revealPassword":
+                            if (args[0].equals("expired")) {
+                                throw new SessionExpiredException();
+                            }
+                            if (args[1].equals("slow.com")) {
+                                Thread.sleep(300);
+                            }
+                            return "pw-" + args[1];
+                        case "deletePassword":
+                            throw new EntryNotFoundException("Password entry not found for deletion.");
+                        default:
+                            return null;
+                    }
+                });
+        server = new BinaryProtocolServer(service, 0, 4);
+        server.start();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        server.close();
+    }
+
+    @Test
+    public void testPipelinedResponsesMatchRequests() throws Exception {
+        try (Socket socket = new Socket("localhost", server.getPort())) {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            // Three requests in a single write, without waiting for any response
+            ByteArrayOutputStream frames = new ByteArrayOutputStream();
+            frames.write(revealFrame(1, "slow.com"));
+            frames.write(revealFrame(2, "a.com"));
+            frames.write(revealFrame(3, "b.com"));
+            out.write(frames.toByteArray());
+            out.flush();
+
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            List<Integer> order = new ArrayList<>();
+            Map<Integer, String> passwords = new HashMap<>();
+            for (int i = 0; i < 3; i++) {
+                in.readInt();
+                int requestId = in.readInt();
+                assertEquals(BinaryProtocol.STATUS_OK, in.readByte());
+                order.add(requestId);
+                passwords.put(requestId, BinaryProtocol.readString(in));
+            }
+            assertEquals("pw-slow.com", passwords.get(1));
+            assertEquals("pw-a.com", passwords.get(2));
+            assertEquals("pw-b.com", passwords.get(3));
+            assertEquals(1, (int) order.get(2), "A slow request should not hold up the ones behind it");
+        }
+    }
+
+    @Test
+    public void testFrameSplitAcrossWrites() throws Exception {
+        try (Socket socket = new Socket("localhost", server.getPort())) {
+            socket.setTcpNoDelay(true);
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            for (byte b : revealFrame(7, "split.com")) {
+                out.write(b);
+                out.flush();
+            }
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            in.readInt();
+            assertEquals(7, in.readInt());
+            assertEquals(BinaryProtocol.STATUS_OK, in.readByte());
+            assertEquals("pw-split.com", BinaryProtocol.readString(in));
+        }
+    }
+
+    @Test
+    public void testInvalidFrameLengthClosesConnection() throws Exception {
+        try (Socket socket = new Socket("localhost", server.getPort())) {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            out.writeInt(BinaryProtocol.MAX_FRAME_BYTES + 1);
+            out.flush();
+            assertThrows(EOFException.class, () -> new DataInputStream(socket.getInputStream()).readInt());
+        }
+    }
+
+    @Test
+    public void testConcurrentClientCalls() throws Exception {
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try (BinaryProtocolClient client = new BinaryProtocolClient("localhost", server.getPort())) {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                String website = "site" + i + ".com";
+                results.add(callers.submit(() -> client.revealPassword("token", website)));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals("pw-site" + i + ".com", results.get(i).get());
+            }
+            RemoteException error = assertThrows(EntryNotFoundException.class, () -> client.deletePassword("token", "a.com"));
+            assertEquals("Password entry not found for deletion.", error.getMessage());
+        } finally {
+            callers.shutdown();
+        }
+    }
+
+    @Test
+    public void testExpiredSessionKeepsItsType() throws Exception {
+        try (BinaryProtocolClient client = new BinaryProtocolClient("localhost", server.getPort())) {
+            assertThrows(SessionExpiredException.class, () -> client.revealPassword("expired", "a.com"));
+            assertEquals("pw-a.com", client.revealPassword("token", "a.com"), "The connection should stay usable");
+        }
+    }
+
+    private static byte[] revealFrame(int requestId, String website) throws Exception {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream bodyOut = new DataOutputStream(body);
+        bodyOut.writeInt(requestId);
+        bodyOut.writeByte(BinaryProtocol.REVEAL_PASSWORD);
+        BinaryProtocol.writeString(bodyOut, "token");
+        BinaryProtocol.writeString(bodyOut, website);
+        ByteArrayOutputStream frame = new ByteArrayOutputStream();
+        DataOutputStream frameOut = new DataOutputStream(frame);
+        frameOut.writeInt(body.size());
+        body.writeTo(frameOut);
+        return frame.toByteArray();
+    }
+}
@@ -0,0 +1,178 @@
+package com.passwordmanager.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Base64;
+import java.util.Map;
+
+import com.passwordmanager.common.PasswordEntry;
+
+/**
+ * Versioned binary encoding of credentials and vault shards.
+ * <pre>
+ * file    := magic:int32 version:int16 kind:int8 count:int32 record*
+ * string  := length:int32 (-1 for null) UTF-8 bytes
+ * bytes   := length:int32 (-1 for null) raw bytes
+ * CREDENTIALS record := username:string hashedPassword:bytes salt:bytes
+ * VAULT record       := website:string username:string encryptedPassword:bytes entryVersion:int64
+ * </pre>
+ * Hashes, salts and ciphertexts are stored as raw bytes instead of their Base64 text.
+ * Version 1 files, whose vault records end with the password, are still read, with entry versions of 0.
+ * Files are read through a read-only {@link MappedByteBuffer}.
+ */
+public final class BinaryVaultFormat {
+
+    public static final String EXTENSION = ".vlt";
+
+    private static final int MAGIC = 0x504D5654; // "PMVT"
+    private static final short VERSION = 2;
+    // First version storing the version of each entry
+    private static final short ENTRY_VERSIONS = 2;
+    private static final byte KIND_CREDENTIALS = 1;
+    private static final byte KIND_VAULT = 2;
+
+    private BinaryVaultFormat() {
+    }
+
+    public static byte[] encodeCredentials(Map<String, String[]> userCredentials) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        writeHeader(out, KIND_CREDENTIALS, userCredentials.size());
+        for (Map.Entry<String, String[]> credentials : userCredentials.entrySet()) {
+            writeString(out, credentials.getKey());
+            writeBytes(out, Base64.getDecoder().decode(credentials.getValue()[0]));
+            writeBytes(out, Base64.getDecoder().decode(credentials.getValue()[1]));
+        }
+        out.flush();
+        return buffer.toByteArray();
+    }
+
+    public static byte[] encodeVault(Map<String, PasswordEntry> vault) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        writeHeader(out, KIND_VAULT, vault.size());
+        for (PasswordEntry entry : vault.values()) {
+            writeString(out, entry.getWebsite());
+            writeString(out, entry.getUsername());
+            writeBytes(out, entry.getPassword() == null ? null : Base64.getDecoder().decode(entry.getPassword()));
+            out.writeLong(entry.getVersion());
+        }
+        out.flush();
+        return buffer.toByteArray();
+    }
+
+    public static void readCredentials(File file, Map<String, String[]> userCredentials) throws IOException {
+        MappedByteBuffer buffer = map(file);
+        readHeader(file, buffer, KIND_CREDENTIALS);
+        try {
+            int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                String username = readString(buffer);
+                String hashedPassword = Base64.getEncoder().encodeToString(readBytes(buffer));
+                String salt = Base64.getEncoder().encodeToString(readBytes(buffer));
+                userCredentials.put(username, new String[]{hashedPassword, salt});
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Truncated or corrupted credentials file " + file.getName(), e);
+        }
+    }
+
+    public static void readVault(File file, Map<String, PasswordEntry> vault) throws IOException {
+        MappedByteBuffer buffer = map(file);
+        short version = readHeader(file, buffer, KIND_VAULT);
+        try {
+            int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                String website = readString(buffer);
+                String username = readString(buffer);
+                byte[] password = readNullableBytes(buffer);
+                String encryptedPassword = password == null ? null : Base64.getEncoder().encodeToString(password);
+                PasswordEntry entry = new PasswordEntry(website, username, encryptedPassword);
+                if (version >= ENTRY_VERSIONS) {
+                    entry.setVersion(buffer.getLong());
+                }
+                vault.put(website, entry);
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Truncated or corrupted vault file " + file.getName(), e);
+        }
+    }
+
+    private static MappedByteBuffer map(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private static void writeHeader(DataOutputStream out, byte kind, int count) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeByte(kind);
+        out.writeInt(count);
+    }
+
+    /**
+     * Checks the header up to the record count.
+     * @return the format version of the file.
+     */
+    private static short readHeader(File file, MappedByteBuffer buffer, byte kind) throws IOException {
+        if (buffer.remaining() < 11 || buffer.getInt() != MAGIC) {
+            throw new IOException(file.getName() + " is not a binary vault file");
+        }
+        short version = buffer.getShort();
+        if (version < 1 || version > VERSION) {
+            throw new IOException(file.getName() + " has unsupported format version " + version);
+        }
+        if (buffer.get() != kind) {
+            throw new IOException(file.getName() + " does not contain the expected kind of records");
+        }
+        return version;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        writeBytes(out, value == null ? null : value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(value.length);
+        out.write(value);
+    }
+
+    private static String readString(MappedByteBuffer buffer) {
+        byte[] value = readNullableBytes(buffer);
+        return value == null ? null : new String(value, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads a field that an entry may leave unset, such as its username.
+     */
+    private static byte[] readNullableBytes(MappedByteBuffer buffer) {
+        if (buffer.getInt(buffer.position()) == -1) {
+            buffer.getInt();
+            return null;
+        }
+        return readBytes(buffer);
+    }
+
+    private static byte[] readBytes(MappedByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Invalid field length " + length);
+        }
+        byte[] value = new byte[length];
+        buffer.get(value);
+        return value;
+    }
+}
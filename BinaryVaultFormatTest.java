@@ -0,0 +1,117 @@
+package com.passwordmanager.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.passwordmanager.common.PasswordEntry;
+
+public class BinaryVaultFormatTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testVaultRoundTrip() throws Exception {
+        Map<String, PasswordEntry> vault = new HashMap<>();
+        vault.put("a.com", new PasswordEntry("a.com", "alice_a", "ZW5jMQ=="));
+        vault.put("é.com", new PasswordEntry("é.com", "名前", "ZW5jMg=="));
+        vault.get("a.com").setVersion(1_700_000_000_000_042L);
+        File file = tempDir.resolve("vault" + BinaryVaultFormat.EXTENSION).toFile();
+        Files.write(file.toPath(), BinaryVaultFormat.encodeVault(vault));
+
+        Map<String, PasswordEntry> read = new HashMap<>();
+        BinaryVaultFormat.readVault(file, read);
+        assertEquals(2, read.size());
+        assertEquals("名前", read.get("é.com").getUsername(), "Strings should be stored as UTF-8");
+        assertEquals("ZW5jMQ==", read.get("a.com").getPassword(), "Ciphertexts should come back as the same Base64 text");
+        assertEquals(1_700_000_000_000_042L, read.get("a.com").getVersion(), "Entry versions should be stored");
+        assertEquals(0, read.get("é.com").getVersion());
+    }
+
+    @Test
+    public void testVaultRoundTripWithNullFields() throws Exception {
+        Map<String, PasswordEntry> vault = new HashMap<>();
+        vault.put("a.com", new PasswordEntry("a.com", null, "ZW5jMQ=="));
+        vault.put("b.com", new PasswordEntry("b.com", "bob_b", null));
+        File file = tempDir.resolve("vault" + BinaryVaultFormat.EXTENSION).toFile();
+        Files.write(file.toPath(), BinaryVaultFormat.encodeVault(vault));
+
+        Map<String, PasswordEntry> read = new HashMap<>();
+        BinaryVaultFormat.readVault(file, read);
+        assertEquals(2, read.size());
+        assertNull(read.get("a.com").getUsername(), "A null username should stay null, not become empty");
+        assertEquals("ZW5jMQ==", read.get("a.com").getPassword());
+        assertEquals("bob_b", read.get("b.com").getUsername());
+        assertNull(read.get("b.com").getPassword());
+    }
+
+    @Test
+    public void testVersion1VaultIsReadWithoutEntryVersions() throws Exception {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeInt(0x504D5654);
+        out.writeShort(1);
+        out.writeByte(2);
+        out.writeInt(1);
+        for (String value : new String[]{"a.com", "alice_a"}) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+        out.writeInt(4);
+        out.write("enc1".getBytes(StandardCharsets.UTF_8));
+        File file = tempDir.resolve("v1" + BinaryVaultFormat.EXTENSION).toFile();
+        Files.write(file.toPath(), buffer.toByteArray());
+
+        Map<String, PasswordEntry> read = new HashMap<>();
+        BinaryVaultFormat.readVault(file, read);
+        assertEquals("ZW5jMQ==", read.get("a.com").getPassword());
+        assertEquals(0, read.get("a.com").getVersion());
+    }
+
+    @Test
+    public void testCredentialsRoundTrip() throws Exception {
+        Map<String, String[]> credentials = new HashMap<>();
+        credentials.put("alice", new String[]{"aGFzaA==", "c2FsdA=="});
+        File file = tempDir.resolve("users" + BinaryVaultFormat.EXTENSION).toFile();
+        Files.write(file.toPath(), BinaryVaultFormat.encodeCredentials(credentials));
+
+        Map<String, String[]> read = new HashMap<>();
+        BinaryVaultFormat.readCredentials(file, read);
+        assertEquals("aGFzaA==", read.get("alice")[0]);
+        assertEquals("c2FsdA==", read.get("alice")[1]);
+    }
+
+    @Test
+    public void testTruncatedOrMismatchedFileIsRejected() throws Exception {
+        Map<String, PasswordEntry> vault = new HashMap<>();
+        vault.put("a.com", new PasswordEntry("a.com", "alice_a", "ZW5jMQ=="));
+        byte[] encoded = BinaryVaultFormat.encodeVault(vault);
+        File truncated = tempDir.resolve("truncated" + BinaryVaultFormat.EXTENSION).toFile();
+        Files.write(truncated.toPath(), Arrays.copyOf(encoded, encoded.length - 3));
+        assertThrows(IOException.class, () -> BinaryVaultFormat.readVault(truncated, new HashMap<>()));
+
+        File vaultFile = tempDir.resolve("vault" + BinaryVaultFormat.EXTENSION).toFile();
+        Files.write(vaultFile.toPath(), encoded);
+        assertThrows(IOException.class, () -> BinaryVaultFormat.readCredentials(vaultFile, new HashMap<>()),
+                "A vault shard should not be read as credentials");
+
+        File json = tempDir.resolve("passwords.json").toFile();
+        Files.write(json.toPath(), "{}".getBytes());
+        assertThrows(IOException.class, () -> BinaryVaultFormat.readVault(json, new HashMap<>()));
+    }
+}
@@ -0,0 +1,63 @@
+package com.passwordmanager.server;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import com.passwordmanager.common.PasswordEncryptor;
+import com.passwordmanager.common.PasswordEntry;
+
+/**
+ * Decrypts the entries of a vault for listing. Small vaults are decrypted sequentially on the calling
+ * thread; vaults of at least {@code threshold} entries are split across the common fork-join pool,
+ * unless the pool has a single worker, in which case splitting only adds overhead.
+ * Either way, entries are decrypted in chunks with {@link PasswordEncryptor#decryptAll}, so that each
+ * thread looks its cipher up once per chunk rather than once per entry.
+ * {@link DecryptionCrossoverBenchmark} measures the crossover point on the target machine.
+ */
+public final class BulkDecryptor {
+
+    // Chunks per pool worker, so that a slow worker does not hold up the whole listing
+    private static final int CHUNKS_PER_WORKER = 4;
+
+    private BulkDecryptor() {
+    }
+
+    public static List<PasswordEntry> decrypt(Collection<PasswordEntry> entries, int threshold) {
+        // Snapshot into an array first: it splits evenly, unlike a concurrent map's view
+        PasswordEntry[] snapshot = entries.toArray(new PasswordEntry[0]);
+        boolean parallel = snapshot.length >= threshold && ForkJoinPool.getCommonPoolParallelism() > 1;
+        return parallel ? decryptParallel(snapshot) : decryptSequential(snapshot);
+    }
+
+    static List<PasswordEntry> decryptSequential(PasswordEntry[] entries) {
+        return decryptChunk(entries, 0, entries.length);
+    }
+
+    static List<PasswordEntry> decryptParallel(PasswordEntry[] entries) {
+        int chunks = Math.min(entries.length, ForkJoinPool.getCommonPoolParallelism() * CHUNKS_PER_WORKER);
+        return IntStream.range(0, chunks).parallel()
+                .mapToObj(chunk -> decryptChunk(entries, (int) ((long) entries.length * chunk / chunks),
+                        (int) ((long) entries.length * (chunk + 1) / chunks)))
+                .flatMap(List::stream)
+                .collect(Collectors.toCollection(() -> new ArrayList<>(entries.length)));
+    }
+
+    private static List<PasswordEntry> decryptChunk(PasswordEntry[] entries, int from, int to) {
+        byte[][] encryptedPasswords = new byte[to - from][];
+        for (int i = from; i < to; i++) {
+            encryptedPasswords[i - from] = Base64.getDecoder().decode(entries[i].getPassword());
+        }
+        byte[][] passwords = PasswordEncryptor.decryptAll(encryptedPasswords);
+        List<PasswordEntry> decrypted = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            PasswordEntry entry = entries[i];
+            decrypted.add(new PasswordEntry(entry.getWebsite(), entry.getUsername(), new String(passwords[i - from])));
+        }
+        return decrypted;
+    }
+}
@@ -0,0 +1,77 @@
+package com.passwordmanager.common;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Result of {@link PasswordManagerService#changesSince}: the entries changed and the websites deleted
+ * after the version held by the client, or the whole vault when {@link #isFull()} is set because the
+ * server no longer tracks changes that far back. Entries carry no password, like listPasswordMetadata.
+ */
+public class ChangeSet implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private long version;
+    private boolean full;
+    private List<PasswordEntry> changed = new ArrayList<>();
+    private List<String> deleted = new ArrayList<>();
+
+    // Default constructor for JSON serialization/deserialization
+    public ChangeSet() {
+    }
+
+    public static ChangeSet full(long version, List<PasswordEntry> entries) {
+        ChangeSet changes = new ChangeSet();
+        changes.version = version;
+        changes.full = true;
+        changes.changed = entries;
+        return changes;
+    }
+
+    public static ChangeSet delta(long version, List<PasswordEntry> changed, List<String> deleted) {
+        ChangeSet changes = new ChangeSet();
+        changes.version = version;
+        changes.changed = changed;
+        changes.deleted = deleted;
+        return changes;
+    }
+
+    /**
+     * @return the vault version this change set brings the client to, to pass to the next call.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    /**
+     * @return true if {@link #getChanged()} holds every entry of the vault and should replace the client's copy.
+     */
+    public boolean isFull() {
+        return full;
+    }
+
+    public void setFull(boolean full) {
+        this.full = full;
+    }
+
+    public List<PasswordEntry> getChanged() {
+        return changed;
+    }
+
+    public void setChanged(List<PasswordEntry> changed) {
+        this.changed = changed;
+    }
+
+    public List<String> getDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(List<String> deleted) {
+        this.deleted = deleted;
+    }
+}
@@ -0,0 +1,94 @@
+package com.passwordmanager.common;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.rmi.server.RMIClientSocketFactory;
+import java.rmi.server.RMIServerSocketFactory;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * RMI socket factory compressing both directions of a connection with deflate.
+ * The server exports its remote object with this factory (see -Dpm.rmi.compress); the client half
+ * travels inside the stub, so clients pick it up without configuration.
+ * Each flush is a sync flush, so RMI messages are never held back in the compressor.
+ */
+public class CompressingSocketFactory implements RMIClientSocketFactory, RMIServerSocketFactory, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    @Override
+    public Socket createSocket(String host, int port) throws IOException {
+        return new CompressedSocket(host, port);
+    }
+
+    @Override
+    public ServerSocket createServerSocket(int port) throws IOException {
+        return new ServerSocket(port) {
+            @Override
+            public Socket accept() throws IOException {
+                Socket socket = new CompressedSocket();
+                implAccept(socket);
+                return socket;
+            }
+        };
+    }
+
+    // RMI reuses connections made by equal factories
+    @Override
+    public boolean equals(Object other) {
+        return other != null && other.getClass() == getClass();
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+
+    private static final class CompressedSocket extends Socket {
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        private final Inflater inflater = new Inflater();
+        private InputStream in;
+        private OutputStream out;
+
+        CompressedSocket() {
+        }
+
+        CompressedSocket(String host, int port) throws IOException {
+            super(host, port);
+        }
+
+        @Override
+        public synchronized InputStream getInputStream() throws IOException {
+            if (in == null) {
+                in = new InflaterInputStream(super.getInputStream(), inflater, BUFFER_SIZE);
+            }
+            return in;
+        }
+
+        @Override
+        public synchronized OutputStream getOutputStream() throws IOException {
+            if (out == null) {
+                out = new DeflaterOutputStream(super.getOutputStream(), deflater, BUFFER_SIZE, true);
+            }
+            return out;
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                deflater.end();
+                inflater.end();
+            }
+        }
+    }
+}
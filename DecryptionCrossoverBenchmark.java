@@ -0,0 +1,48 @@
+package com.passwordmanager.server;
+
+import com.passwordmanager.common.PasswordEncryptor;
+import com.passwordmanager.common.PasswordEntry;
+
+/**
+ * Measures sequential against parallel vault decryption for growing vault sizes, to locate the size
+ * from which {@link BulkDecryptor} should switch to the fork-join pool.
+ * Run with: java -cp target/classes com.passwordmanager.server.DecryptionCrossoverBenchmark
+ * and set {@code -Dpm.list.parallelThreshold} on the server to the first size with a speedup above 1.
+ */
+public class DecryptionCrossoverBenchmark {
+
+    private static final int[] SIZES = {16, 64, 256, 1024, 4096, 16384, 65536};
+    private static final long MIN_RUN_NANOS = 200_000_000L;
+
+    public static void main(String[] args) {
+        System.out.println("Cores: " + Runtime.getRuntime().availableProcessors());
+        System.out.printf("%8s %14s %14s %8s%n", "entries", "sequential us", "parallel us", "speedup");
+        for (int size : SIZES) {
+            PasswordEntry[] vault = new PasswordEntry[size];
+            for (int i = 0; i < size; i++) {
+                vault[i] = new PasswordEntry("site" + i + ".com", "user" + i, PasswordEncryptor.encrypt("password-" + i));
+            }
+            // Warm up both paths before measuring
+            measure(() -> BulkDecryptor.decryptSequential(vault));
+            measure(() -> BulkDecryptor.decryptParallel(vault));
+            double sequential = measure(() -> BulkDecryptor.decryptSequential(vault));
+            double parallel = measure(() -> BulkDecryptor.decryptParallel(vault));
+            System.out.printf("%8d %14.1f %14.1f %8.2f%n", size, sequential / 1000, parallel / 1000, sequential / parallel);
+        }
+    }
+
+    /**
+     * @return the average duration of one run, in nanoseconds.
+     */
+    private static double measure(Runnable run) {
+        long runs = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            run.run();
+            runs++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < MIN_RUN_NANOS);
+        return (double) elapsed / runs;
+    }
+}
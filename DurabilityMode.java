@@ -0,0 +1,20 @@
+package com.passwordmanager.server;
+
+/**
+ * When a mutation is acknowledged to the client, relative to its write-ahead log record reaching the disk.
+ */
+public enum DurabilityMode {
+    /** The record is written and fsynced on the calling thread before the call returns. */
+    SYNC,
+    /** Records are batched by the flusher and the call returns once its batch is fsynced. */
+    GROUP,
+    /** The call returns immediately; the flusher writes and fsyncs in the background. */
+    ASYNC;
+
+    public static DurabilityMode fromProperty(String value) {
+        if (value == null || value.isBlank()) {
+            return GROUP;
+        }
+        return valueOf(value.trim().toUpperCase());
+    }
+}
@@ -0,0 +1,14 @@
+package com.passwordmanager.common;
+
+import java.rmi.RemoteException;
+
+/**
+ * Thrown by calls reading or changing an entry that is not in the vault.
+ */
+public class EntryNotFoundException extends RemoteException {
+    private static final long serialVersionUID = 1L;
+
+    public EntryNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,148 @@
+package com.passwordmanager.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind stage in front of the write-ahead log.
+ * In {@link DurabilityMode#GROUP} and {@link DurabilityMode#ASYNC} modes, records are queued and a single
+ * flusher thread coalesces those arriving within a short window into one write and one fsync.
+ * In {@link DurabilityMode#SYNC} mode the caller writes and fsyncs its own record.
+ */
+public class GroupCommitFlusher implements Closeable {
+
+    private static final int MAX_BATCH = 1024;
+
+    private static class Pending {
+        final LogRecord record;
+        final CompletableFuture<Void> durable = new CompletableFuture<>();
+
+        Pending(LogRecord record) {
+            this.record = record;
+        }
+    }
+
+    private final WriteAheadLog writeAheadLog;
+    private final DurabilityMode mode;
+    private final long windowNanos;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Thread flusherThread;
+    private volatile boolean running = true;
+
+    public GroupCommitFlusher(WriteAheadLog writeAheadLog, DurabilityMode mode, long windowMillis) {
+        this.writeAheadLog = writeAheadLog;
+        this.mode = mode;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.flusherThread = new Thread(this::run, "wal-flusher");
+        this.flusherThread.setDaemon(true);
+        if (mode != DurabilityMode.SYNC) {
+            flusherThread.start();
+        }
+    }
+
+    public DurabilityMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Hands a record to the log. Records submitted in a given order are written in that order.
+     * @return a future completed once the record is durable, as defined by the durability mode:
+     *         already completed in SYNC and ASYNC modes, completed by the flusher in GROUP mode.
+     */
+    public CompletableFuture<Void> submit(LogRecord record) {
+        if (mode == DurabilityMode.SYNC) {
+            try {
+                writeAheadLog.append(record);
+                writeAheadLog.force();
+                return CompletableFuture.completedFuture(null);
+            } catch (IOException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        Pending pending = new Pending(record);
+        // Checked and queued atomically with respect to close(), which fails whatever it finds queued after
+        // the flusher stops: a record queued later would never be completed
+        synchronized (this) {
+            if (!running) {
+                return CompletableFuture.failedFuture(new IOException("Write-ahead log flusher is closed"));
+            }
+            queue.add(pending);
+        }
+        return mode == DurabilityMode.ASYNC ? CompletableFuture.completedFuture(null) : pending.durable;
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // Keep collecting until the window closes or the batch is full
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < MAX_BATCH) {
+                    long remaining = deadline - System.nanoTime();
+                    Pending next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<Pending> batch) {
+        List<LogRecord> records = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            records.add(pending.record);
+        }
+        try {
+            writeAheadLog.appendAll(records);
+            writeAheadLog.force();
+            for (Pending pending : batch) {
+                pending.durable.complete(null);
+            }
+        } catch (IOException e) {
+            System.err.println("Error flushing " + batch.size() + " records to write-ahead log: " + e.getMessage());
+            for (Pending pending : batch) {
+                pending.durable.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Stops accepting records and waits for the queued ones to be flushed.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            running = false;
+        }
+        if (flusherThread.isAlive()) {
+            try {
+                flusherThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        Pending leftover;
+        while ((leftover = queue.poll()) != null) {
+            leftover.durable.completeExceptionally(new IOException("Write-ahead log flusher is closed"));
+        }
+    }
+}
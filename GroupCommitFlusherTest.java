@@ -0,0 +1,61 @@
+package com.passwordmanager.server;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.passwordmanager.common.PasswordEntry;
+
+public class GroupCommitFlusherTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testGroupCommitFlushesInOrder() throws Exception {
+        File logFile = tempDir.resolve("vault.wal").toFile();
+        try (WriteAheadLog log = new WriteAheadLog(logFile, objectMapper);
+             GroupCommitFlusher flusher = new GroupCommitFlusher(log, DurabilityMode.GROUP, 2)) {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                futures.add(flusher.submit(LogRecord.put("alice", new PasswordEntry("site" + i + ".com", "alice", "enc"))));
+            }
+            for (CompletableFuture<Void> durable : futures) {
+                durable.get(10, TimeUnit.SECONDS);
+            }
+        }
+
+        List<LogRecord> records = new ArrayList<>();
+        WriteAheadLog.replay(logFile, objectMapper, records::add);
+        assertEquals(100, records.size());
+        for (int i = 0; i < records.size(); i++) {
+            assertEquals("site" + i + ".com", records.get(i).getEntry().getWebsite(), "Records should be logged in order");
+        }
+    }
+
+    @Test
+    public void testSubmitAfterCloseFails() throws Exception {
+        File logFile = tempDir.resolve("vault.wal").toFile();
+        try (WriteAheadLog log = new WriteAheadLog(logFile, objectMapper)) {
+            GroupCommitFlusher flusher = new GroupCommitFlusher(log, DurabilityMode.GROUP, 2);
+            flusher.close();
+            CompletableFuture<Void> durable = flusher.submit(LogRecord.delete("alice", "a.com"));
+            assertTrue(durable.isDone(), "A record submitted after close should not wait for a flush");
+            assertThrows(ExecutionException.class, durable::get);
+        }
+        assertEquals(0, logFile.length());
+    }
+}
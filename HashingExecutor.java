@@ -0,0 +1,62 @@
+package com.passwordmanager.server;
+
+import java.rmi.RemoteException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.passwordmanager.common.ServerBusyException;
+
+/**
+ * Bounded worker pool for password hashing and verification.
+ * Hashing is kept off the RMI transport threads and limited to a fixed number of workers, so a burst
+ * of logins cannot take every CPU away from vault reads. When all workers are busy and the queue is
+ * full, new requests are rejected immediately instead of piling up.
+ */
+public class HashingExecutor {
+
+    private final ThreadPoolExecutor executor;
+
+    public HashingExecutor(int threads, int queueCapacity) {
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread thread = new Thread(r, "password-hasher-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Runs a hashing task on the pool and waits for its result.
+     * @throws ServerBusyException if the pool is saturated.
+     * @throws RemoteException if the task fails.
+     */
+    public <T> T call(Callable<T> task) throws RemoteException {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            System.err.println("Hashing pool saturated, rejecting request.");
+            throw new ServerBusyException();
+        }
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw new RemoteException("Password hashing failed", e.getCause());
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RemoteException("Interrupted while hashing password", e);
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
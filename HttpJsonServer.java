@@ -0,0 +1,283 @@
+package com.passwordmanager.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.rmi.RemoteException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.passwordmanager.common.ChangeSet;
+import com.passwordmanager.common.EntryNotFoundException;
+import com.passwordmanager.common.Mutation;
+import com.passwordmanager.common.PasswordEntry;
+import com.passwordmanager.common.PasswordManagerService;
+import com.passwordmanager.common.PasswordPage;
+import com.passwordmanager.common.ServerBusyException;
+import com.passwordmanager.common.SessionExpiredException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * HTTP/JSON endpoint for the service, for clients that cannot speak RMI.
+ * <pre>
+ * POST   /api/login              {"username", "password"}  -&gt; {"token"}
+ * POST   /api/register           {"username", "password"}  -&gt; {"registered"}
+ * POST   /api/logout
+ * GET    /api/passwords[?metadata=true]                    -&gt; [entry, ...]
+ * GET    /api/passwords/page?cursor=&amp;size=                 -&gt; {"entries", "nextCursor", "version"}
+ * GET    /api/passwords/search?q=&amp;limit=                   -&gt; [entry, ...]
+ * GET    /api/passwords/reveal?website=                    -&gt; {"password"}
+ * POST   /api/passwords          entry
+ * PUT    /api/passwords          entry
+ * DELETE /api/passwords?website=
+ * POST   /api/batch              [mutation, ...]           -&gt; [result, ...]
+ * GET    /api/changes?since=                               -&gt; {"version", "full", "changed", "deleted"}
+ * </pre>
+ * Calls other than login and register carry the session token as {@code Authorization: Bearer <token>}.
+ * Errors answer {"error": message}: 401 for a missing, invalid or expired session, 404 for an unknown entry
+ * or operation, 400 for a rejected request, 503 with Retry-After when the server is overloaded and 500 for a
+ * server failure. Each request runs on its own virtual thread when the JVM has them
+ * (Java 21+), otherwise on a cached thread pool. Connections are kept alive between requests, and
+ * listings are streamed to the client as they are serialized.
+ */
+public class HttpJsonServer implements Closeable {
+
+    private static final int BACKLOG = 1024;
+    private static final String PREFIX = "/api/";
+    // Seconds an overloaded server asks clients to wait before retrying
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    private final PasswordManagerService service;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    private static class HttpError extends Exception {
+        private static final long serialVersionUID = 1L;
+        private final int status;
+
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    public HttpJsonServer(PasswordManagerService service, int port) throws IOException {
+        this.service = service;
+        this.server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        this.executor = newRequestExecutor();
+        server.setExecutor(executor);
+        server.createContext(PREFIX, this::handle);
+    }
+
+    private static ExecutorService newRequestExecutor() {
+        try {
+            // Looked up reflectively: the build still targets Java 17
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            System.out.println("Virtual threads are not available, HTTP requests run on a thread pool.");
+            AtomicInteger counter = new AtomicInteger();
+            return Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "http-worker-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            Object result = route(exchange, exchange.getRequestMethod(), exchange.getRequestURI().getPath().substring(PREFIX.length()));
+            if (result instanceof List || result instanceof PasswordPage || result instanceof ChangeSet) {
+                stream(exchange, result);
+            } else {
+                respond(exchange, 200, result);
+            }
+        } catch (HttpError e) {
+            error(exchange, e.status, e.getMessage());
+        } catch (SessionExpiredException e) {
+            error(exchange, 401, e.getMessage());
+        } catch (EntryNotFoundException e) {
+            error(exchange, 404, e.getMessage());
+        } catch (ServerBusyException e) {
+            exchange.getResponseHeaders().set("Retry-After", RETRY_AFTER_SECONDS);
+            error(exchange, 503, e.getMessage());
+        } catch (RemoteException e) {
+            if (e.getCause() != null) {
+                // A failure of the server itself, such as a log write, rather than a rejected request
+                System.err.println("HTTP request failed: " + e.getMessage());
+                error(exchange, 500, "Internal server error");
+            } else {
+                error(exchange, 400, e.getMessage());
+            }
+        } catch (JsonProcessingException e) {
+            error(exchange, 400, "Invalid request: " + e.getOriginalMessage());
+        } catch (IOException | IllegalArgumentException e) {
+            // Malformed JSON, parameters or paths, or a client that went away while a listing was streamed
+            error(exchange, 400, "Invalid request: " + e.getMessage());
+        } catch (RuntimeException e) {
+            System.err.println("HTTP request failed: " + e);
+            error(exchange, 500, "Internal server error");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private Object route(HttpExchange exchange, String method, String path) throws IOException, HttpError {
+        Map<String, String> query = query(exchange);
+        switch (method + " " + path) {
+            case "POST login": {
+                JsonNode body = objectMapper.readTree(exchange.getRequestBody());
+                String token = service.login(text(body, "username"), text(body, "password"));
+                if (token == null) {
+                    throw new HttpError(401, "Invalid credentials.");
+                }
+                return Map.of("token", token);
+            }
+            case "POST register": {
+                JsonNode body = objectMapper.readTree(exchange.getRequestBody());
+                return Map.of("registered", service.register(text(body, "username"), text(body, "password")));
+            }
+            case "POST logout":
+                service.logout(token(exchange));
+                return Map.of();
+            case "GET passwords":
+                return Boolean.parseBoolean(query.get("metadata"))
+                        ? service.listPasswordMetadata(token(exchange))
+                        : service.listPasswords(token(exchange));
+            case "GET passwords/page":
+                return service.listPasswordPage(token(exchange), query.get("cursor"), intParameter(query, "size", 100));
+            case "GET passwords/search":
+                return service.searchPasswords(token(exchange), query.getOrDefault("q", ""), intParameter(query, "limit", 100));
+            case "GET passwords/reveal":
+                return Map.of("password", service.revealPassword(token(exchange), required(query, "website")));
+            case "POST passwords":
+                service.addPassword(token(exchange), entry(exchange));
+                return Map.of();
+            case "PUT passwords":
+                service.updatePassword(token(exchange), entry(exchange));
+                return Map.of();
+            case "DELETE passwords":
+                service.deletePassword(token(exchange), required(query, "website"));
+                return Map.of();
+            case "POST batch":
+                return service.applyBatch(token(exchange),
+                        objectMapper.readValue(exchange.getRequestBody(), new TypeReference<List<Mutation>>() {}));
+            case "GET changes":
+                return service.changesSince(token(exchange), Long.parseLong(query.getOrDefault("since", "0")));
+            default:
+                throw new HttpError(404, "Unknown operation: " + method + " " + PREFIX + path);
+        }
+    }
+
+    private static String token(HttpExchange exchange) throws HttpError {
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authorization == null || !authorization.startsWith("Bearer ")) {
+            throw new HttpError(401, "Missing session token.");
+        }
+        return authorization.substring("Bearer ".length()).trim();
+    }
+
+    private PasswordEntry entry(HttpExchange exchange) throws IOException, HttpError {
+        PasswordEntry entry = objectMapper.readValue(exchange.getRequestBody(), PasswordEntry.class);
+        if (entry == null || entry.getWebsite() == null || entry.getUsername() == null || entry.getPassword() == null) {
+            throw new HttpError(400, "Invalid entry: a website, a username and a password are required.");
+        }
+        return entry;
+    }
+
+    private static String text(JsonNode body, String field) {
+        JsonNode value = body.get(field);
+        if (value == null || !value.isTextual()) {
+            throw new IllegalArgumentException("missing field " + field);
+        }
+        return value.asText();
+    }
+
+    private static String required(Map<String, String> query, String name) {
+        String value = query.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("missing parameter " + name);
+        }
+        return value;
+    }
+
+    private static int intParameter(Map<String, String> query, String name, int defaultValue) {
+        String value = query.get(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> parameters = new HashMap<>();
+        String rawQuery = exchange.getRequestURI().getRawQuery();
+        if (rawQuery == null) {
+            return parameters;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int separator = pair.indexOf('=');
+            String name = separator < 0 ? pair : pair.substring(0, separator);
+            String value = separator < 0 ? "" : pair.substring(separator + 1);
+            parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    /**
+     * Answers an error, unless the response headers were already sent by a listing that failed while
+     * being streamed: the status can no longer change, and the client is left with truncated JSON.
+     */
+    private void error(HttpExchange exchange, int status, String message) throws IOException {
+        if (exchange.getResponseCode() != -1) {
+            System.err.println("HTTP response aborted after its headers were sent: " + message);
+            return;
+        }
+        respond(exchange, status, Collections.singletonMap("error", message != null ? message : "Request failed"));
+    }
+
+    private void respond(HttpExchange exchange, int status, Object value) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        objectMapper.writeValue(buffer, value);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, buffer.size());
+        try (OutputStream body = exchange.getResponseBody()) {
+            buffer.writeTo(body);
+        }
+    }
+
+    /**
+     * Writes a listing with chunked encoding while it is serialized, instead of buffering it first.
+     */
+    private void stream(HttpExchange exchange, Object value) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream body = exchange.getResponseBody()) {
+            objectMapper.writeValue(body, value);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.passwordmanager.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.passwordmanager.common.PasswordEntry;
+
+/**
+ * Background stage that folds the write-ahead log into a new snapshot.
+ * The active log is sealed (a short rename under the log's lock), then the sealed segments are replayed
+ * on the compaction thread on top of private copies of the shards they touch, which are written back.
+ * The live maps used by RMI calls are never touched or locked.
+ * <p>
+ * Compaction runs once the active log grows past {@code pm.compaction.maxLogBytes} bytes, or once
+ * {@code pm.compaction.intervalSeconds} have elapsed since the last one and the log is not empty.
+ */
+public class LogCompactor {
+
+    private static final long CHECK_PERIOD_SECONDS = 5;
+
+    private final WriteAheadLog writeAheadLog;
+    private final File logFile;
+    private final VaultSnapshot snapshot;
+    private final ObjectMapper logMapper;
+    private final long maxLogBytes;
+    private final long intervalMillis;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "log-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile long lastCompaction = System.currentTimeMillis();
+    private volatile long lastDurationMillis;
+    private volatile long lastReclaimedBytes;
+
+    public LogCompactor(WriteAheadLog writeAheadLog, File logFile, VaultSnapshot snapshot, ObjectMapper logMapper,
+                        long maxLogBytes, long intervalSeconds) {
+        this.writeAheadLog = writeAheadLog;
+        this.logFile = logFile;
+        this.snapshot = snapshot;
+        this.logMapper = logMapper;
+        this.maxLogBytes = maxLogBytes;
+        this.intervalMillis = TimeUnit.SECONDS.toMillis(intervalSeconds);
+    }
+
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::compactIfNeeded, CHECK_PERIOD_SECONDS, CHECK_PERIOD_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops the scheduled runs and waits for a running compaction, which still uses the log.
+     */
+    public void stop() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void compactIfNeeded() {
+        try {
+            long logSize = writeAheadLog.size();
+            boolean sizeReached = logSize >= maxLogBytes;
+            boolean intervalReached = logSize > 0 && System.currentTimeMillis() - lastCompaction >= intervalMillis;
+            if (sizeReached || intervalReached) {
+                compact();
+            }
+        } catch (Exception e) {
+            // Keep the scheduled task alive; the log stays intact and the next run retries
+            System.err.println("Error during log compaction: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Seals the active log and folds every sealed segment into the snapshot.
+     * Only the shards of users touched by the segments are read and rewritten, and users.json
+     * only when the segments register new users.
+     * Sealed segments are deleted only once the new shards, users.vlt and index.json are durable
+     * (see {@link VaultSnapshot}); since log records are idempotent, a crash in between simply replays
+     * them again on top of the new snapshot. If any write fails, the segments are kept for the next run.
+     */
+    public synchronized void compact() throws IOException {
+        long start = System.nanoTime();
+        writeAheadLog.rotate();
+        List<File> segments = WriteAheadLog.sealedSegments(logFile);
+
+        long bytesBefore = 0;
+        Map<String, String[]> registered = new HashMap<>();
+        Map<String, Map<String, PasswordEntry>> touched = new HashMap<>();
+        Function<String, Map<String, PasswordEntry>> vaults = user -> touched.computeIfAbsent(user, k -> {
+            try {
+                return snapshot.readVault(k);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        int records = 0;
+        try {
+            for (File segment : segments) {
+                bytesBefore += segment.length();
+                records += WriteAheadLog.replay(segment, logMapper, record -> record.applyTo(registered, vaults));
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        long bytesAfter = 0;
+        if (!registered.isEmpty()) {
+            Map<String, String[]> credentials = new HashMap<>();
+            if (snapshot.exists()) {
+                bytesBefore += snapshot.credentialsSize();
+                snapshot.readCredentials(credentials);
+            }
+            credentials.putAll(registered);
+            snapshot.writeCredentials(credentials);
+            bytesAfter += snapshot.credentialsSize();
+        }
+        boolean indexChanged = false;
+        for (Map.Entry<String, Map<String, PasswordEntry>> vault : touched.entrySet()) {
+            bytesBefore += snapshot.vaultSize(vault.getKey());
+            indexChanged |= snapshot.writeVault(vault.getKey(), vault.getValue());
+            bytesAfter += snapshot.vaultSize(vault.getKey());
+        }
+        if (indexChanged) {
+            snapshot.writeIndex();
+        }
+        for (File segment : segments) {
+            if (!segment.delete()) {
+                System.err.println("Unable to delete compacted log segment " + segment.getName());
+            }
+        }
+
+        lastCompaction = System.currentTimeMillis();
+        lastDurationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        lastReclaimedBytes = bytesBefore - bytesAfter;
+        System.out.println("Log compaction folded " + records + " records from " + segments.size() + " segment(s) into "
+                + touched.size() + " shard(s) in " + lastDurationMillis + " ms, reclaimed " + lastReclaimedBytes + " bytes.");
+    }
+
+    public long getLastDurationMillis() {
+        return lastDurationMillis;
+    }
+
+    public long getLastReclaimedBytes() {
+        return lastReclaimedBytes;
+    }
+}
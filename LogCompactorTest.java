@@ -0,0 +1,81 @@
+package com.passwordmanager.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.passwordmanager.common.PasswordEntry;
+
+public class LogCompactorTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testCompactionFoldsLogIntoShards() throws Exception {
+        File logFile = tempDir.resolve("vault.wal").toFile();
+        File shardDir = tempDir.resolve("vaults").toFile();
+        try (WriteAheadLog log = new WriteAheadLog(logFile, objectMapper)) {
+            VaultSnapshot snapshot = new VaultSnapshot(shardDir, objectMapper);
+            snapshot.open();
+            LogCompactor compactor = new LogCompactor(log, logFile, snapshot, objectMapper, Long.MAX_VALUE, 3600);
+            log.append(LogRecord.register("alice", new String[]{"hash", "salt"}));
+            log.append(LogRecord.put("alice", new PasswordEntry("a.com", "alice_a", "enc1")));
+            log.append(LogRecord.put("alice", new PasswordEntry("b.com", "alice_b", "enc2")));
+            compactor.compact();
+            // A second run only rewrites what the new segment touches
+            log.append(LogRecord.delete("alice", "a.com"));
+            compactor.compact();
+
+            assertTrue(WriteAheadLog.sealedSegments(logFile).isEmpty(), "Compacted segments should be deleted");
+            assertEquals(0, logFile.length(), "The active log should start empty");
+        }
+        String[] leftovers = shardDir.list((dir, name) -> name.endsWith(".tmp"));
+        assertEquals(0, leftovers.length, "No temporary file should be left behind");
+
+        VaultSnapshot reopened = new VaultSnapshot(shardDir, objectMapper);
+        reopened.open();
+        Map<String, String[]> credentials = new HashMap<>();
+        reopened.readCredentials(credentials);
+        assertEquals("hash", credentials.get("alice")[0]);
+        Map<String, PasswordEntry> vault = reopened.readVault("alice");
+        assertEquals(1, vault.size(), "Deleted entry should not be written back");
+        assertEquals("enc2", vault.get("b.com").getPassword());
+    }
+
+    @Test
+    public void testSegmentsKeptWhenSnapshotWriteFails() throws Exception {
+        File logFile = tempDir.resolve("vault.wal").toFile();
+        // A file in the way of the shard directory makes every snapshot write fail
+        File shardDir = tempDir.resolve("vaults").toFile();
+        Files.write(shardDir.toPath(), new byte[0]);
+        try (WriteAheadLog log = new WriteAheadLog(logFile, objectMapper)) {
+            VaultSnapshot snapshot = new VaultSnapshot(shardDir, objectMapper);
+            LogCompactor compactor = new LogCompactor(log, logFile, snapshot, objectMapper, Long.MAX_VALUE, 3600);
+            log.append(LogRecord.register("bob", new String[]{"hash", "salt"}));
+            log.append(LogRecord.put("bob", new PasswordEntry("c.com", "bob_c", "enc3")));
+
+            assertThrows(IOException.class, compactor::compact);
+            assertEquals(1, WriteAheadLog.sealedSegments(logFile).size(), "The segment should be kept for the next run");
+        }
+
+        Map<String, String[]> credentials = new HashMap<>();
+        Map<String, Map<String, PasswordEntry>> passwords = new HashMap<>();
+        File segment = WriteAheadLog.sealedSegments(logFile).get(0);
+        assertEquals(2, WriteAheadLog.replay(segment, objectMapper, record -> record.applyTo(credentials, passwords)));
+        assertFalse(passwords.get("bob").isEmpty());
+    }
+}
@@ -0,0 +1,179 @@
+package com.passwordmanager.server;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.passwordmanager.common.PasswordEntry;
+
+/**
+ * A single mutation appended to the write-ahead log.
+ * Records are idempotent: replaying one on top of a state that already contains it is a no-op.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class LogRecord {
+
+    public enum Op { REGISTER, PUT, DELETE, BATCH }
+
+    private Op op;
+    private String user;
+    private String[] credentials; // REGISTER: [hashedPassword, salt]
+    private PasswordEntry entry;  // PUT: entry with encrypted password
+    private String website;       // DELETE
+    private List<LogRecord> records; // BATCH: PUT and DELETE records of one user, logged as a single line
+
+    // Default constructor for JSON serialization/deserialization
+    public LogRecord() {
+    }
+
+    public static LogRecord register(String user, String[] credentials) {
+        LogRecord record = new LogRecord();
+        record.op = Op.REGISTER;
+        record.user = user;
+        record.credentials = credentials;
+        return record;
+    }
+
+    public static LogRecord put(String user, PasswordEntry entry) {
+        LogRecord record = new LogRecord();
+        record.op = Op.PUT;
+        record.user = user;
+        record.entry = entry;
+        return record;
+    }
+
+    public static LogRecord delete(String user, String website) {
+        LogRecord record = new LogRecord();
+        record.op = Op.DELETE;
+        record.user = user;
+        record.website = website;
+        return record;
+    }
+
+    /**
+     * Groups several records into one, so that they are written, and replayed after a crash, all or none.
+     */
+    public static LogRecord batch(String user, List<LogRecord> records) {
+        LogRecord record = new LogRecord();
+        record.op = Op.BATCH;
+        record.user = user;
+        record.records = records;
+        return record;
+    }
+
+    /**
+     * Checks that this record can be applied: a record that cannot would fail on every replay of the log.
+     * @throws IllegalArgumentException naming what the record lacks.
+     */
+    public void check() {
+        if (op == null || user == null) {
+            throw new IllegalArgumentException("Record without an operation or a user");
+        }
+        switch (op) {
+            case REGISTER:
+                if (credentials == null || credentials.length != 2) {
+                    throw new IllegalArgumentException("REGISTER record of " + user + " without credentials");
+                }
+                break;
+            case PUT:
+                if (entry == null || entry.getWebsite() == null) {
+                    throw new IllegalArgumentException("PUT record of " + user + " without an entry website");
+                }
+                break;
+            case DELETE:
+                if (website == null) {
+                    throw new IllegalArgumentException("DELETE record of " + user + " without a website");
+                }
+                break;
+            case BATCH:
+                if (records == null) {
+                    throw new IllegalArgumentException("BATCH record of " + user + " without records");
+                }
+                for (LogRecord record : records) {
+                    record.check();
+                }
+                break;
+        }
+    }
+
+    /**
+     * Applies this mutation to the given in-memory maps.
+     */
+    public void applyTo(Map<String, String[]> userCredentials, Map<String, Map<String, PasswordEntry>> userPasswords) {
+        applyTo(userCredentials, user -> userPasswords.computeIfAbsent(user, k -> new ConcurrentHashMap<>()));
+    }
+
+    /**
+     * Applies this mutation to the given credentials and to the vault returned by the resolver,
+     * which is expected to load the user's vault (or create an empty one) if it is not in memory yet.
+     */
+    public void applyTo(Map<String, String[]> userCredentials, Function<String, Map<String, PasswordEntry>> vaults) {
+        switch (op) {
+            case REGISTER:
+                userCredentials.put(user, credentials);
+                vaults.apply(user);
+                break;
+            case PUT:
+                vaults.apply(user).put(entry.getWebsite(), entry);
+                break;
+            case DELETE:
+                vaults.apply(user).remove(website);
+                break;
+            case BATCH:
+                for (LogRecord record : records) {
+                    record.applyTo(userCredentials, vaults);
+                }
+                break;
+        }
+    }
+
+    public Op getOp() {
+        return op;
+    }
+
+    public void setOp(Op op) {
+        this.op = op;
+    }
+
+    public String getUser() {
+        return user;
+    }
+
+    public void setUser(String user) {
+        this.user = user;
+    }
+
+    public String[] getCredentials() {
+        return credentials;
+    }
+
+    public void setCredentials(String[] credentials) {
+        this.credentials = credentials;
+    }
+
+    public PasswordEntry getEntry() {
+        return entry;
+    }
+
+    public void setEntry(PasswordEntry entry) {
+        this.entry = entry;
+    }
+
+    public String getWebsite() {
+        return website;
+    }
+
+    public void setWebsite(String website) {
+        this.website = website;
+    }
+
+    public List<LogRecord> getRecords() {
+        return records;
+    }
+
+    public void setRecords(List<LogRecord> records) {
+        this.records = records;
+    }
+}
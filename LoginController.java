@@ -1,15 +1,19 @@
 package com.passwordmanager.client.gui;
 
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 
-import com.passwordmanager.client.PasswordManagerClient;
+import com.passwordmanager.client.AsyncPasswordManagerClient;
+import com.passwordmanager.common.PasswordPage;
 
+import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Node;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
+import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.PasswordField;
 import javafx.scene.control.TextField;
@@ -18,7 +22,9 @@ import javafx.stage.Stage;
 /**
  * Controller for the LoginView.fxml, handling user authentication and registration.
  * It manages the UI elements for username, password, and status messages, and interacts
- * with the PasswordManagerClient to perform login and registration operations.
+ * with the AsyncPasswordManagerClient to perform login and registration operations.
+ * While the login screen is shown, the main view is loaded in the background, so that a successful
+ * login only has to wait for the server.
  */
 public class LoginController {
 
@@ -28,16 +34,50 @@ public class LoginController {
     private PasswordField passwordField;
     @FXML
     private Label messageLabel;
+    @FXML
+    private Button loginButton;
+
+    private static final String MAIN_VIEW = "/com/passwordmanager/gui/MainView.fxml";
 
-    private PasswordManagerClient client;
+    private AsyncPasswordManagerClient client;
+    // The main view and its controller, loaded once for the next successful login
+    private final CompletableFuture<FXMLLoader> mainView = preloadMainView();
 
     /**
-     * Constructor for LoginController. Initializes the PasswordManagerClient.
-     * This client is used to communicate with the RMI server for authentication and registration.
+     * Constructor for LoginController. Gets the AsyncPasswordManagerClient shared by the application.
+     * This client is used to communicate with the RMI server for authentication and registration;
+     * its calls complete in the background and their results are handled on the JavaFX thread.
      */
     public LoginController() {
-        // Initialize the client in the constructor. This ensures it's ready when the controller is created.
-        client = new PasswordManagerClient();
+        client = AsyncPasswordManagerClient.shared();
+        // Look the server up while the user types, so that the login does not wait for it
+        client.connect().whenComplete((result, error) -> {
+            if (error != null) {
+                System.err.println("Server not reachable yet: " + AsyncPasswordManagerClient.causeOf(error).getMessage());
+            }
+        });
+    }
+
+    /**
+     * Loads the main view on a background thread. Its nodes are not part of a scene yet,
+     * so they may be built outside of the JavaFX thread.
+     * @return a future of the loader, holding the view's root and controller.
+     */
+    private static CompletableFuture<FXMLLoader> preloadMainView() {
+        final CompletableFuture<FXMLLoader> preloaded = new CompletableFuture<>();
+        Thread thread = new Thread(() -> {
+            try {
+                FXMLLoader loader = new FXMLLoader(Objects.requireNonNull(LoginController.class.getResource(MAIN_VIEW)));
+                loader.setClassLoader(LoginController.class.getClassLoader());
+                loader.load();
+                preloaded.complete(loader);
+            } catch (Throwable e) {
+                preloaded.completeExceptionally(e);
+            }
+        }, "main-view-preloader");
+        thread.setDaemon(true);
+        thread.start();
+        return preloaded;
     }
 
     /**
@@ -47,6 +87,9 @@ public class LoginController {
      */
     @FXML
     private void handleLogin(ActionEvent event) {
+        if (loginButton.isDisabled()) {
+            return; // A login is in flight; a second one would open a second session and a second main view
+        }
         clearErrorStyling(); // Clear previous errors
         String username = usernameField.getText().trim();
         String password = passwordField.getText().trim();
@@ -62,39 +105,80 @@ public class LoginController {
             return;
         }
 
-        try {
-            if (client.login(username, password)) {
-                messageLabel.setText("Connexion réussie !");
-                messageLabel.getStyleClass().remove("error-label");
-                messageLabel.getStyleClass().add("success-label");
-                System.out.println("Login successful for user: " + username);
-                
-                // Navigate to the main application view
-                Stage stage = (Stage)((Node)event.getSource()).getScene().getWindow();
-                FXMLLoader loader = new FXMLLoader(Objects.requireNonNull(getClass().getResource("/com/passwordmanager/gui/MainView.fxml")));
-                Parent root = loader.load();
-
-                MainController mainController = loader.getController();
-                mainController.setLoggedInUsername(username);
+        messageLabel.setText("Connexion en cours...");
+        // Disabled until the login fails, or for good once the main view replaces this one
+        loginButton.setDisable(true);
+        // The window is looked up now: the event is no longer valid once the login completes
+        final Stage stage = (Stage)((Node)event.getSource()).getScene().getWindow();
+        final CompletableFuture<String> login = client.login(username, password);
+        // The first page is requested as soon as the session exists, from the client's thread, while the
+        // JavaFX thread switches to the main view
+        final CompletableFuture<PasswordPage> firstPage = login.thenCompose(sessionToken -> sessionToken == null
+                ? CompletableFuture.completedFuture(null)
+                : client.listPasswordPage(sessionToken, null, MainController.PAGE_SIZE));
+        login.whenCompleteAsync((sessionToken, error) -> {
+            try {
+                if (error != null) {
+                    throw AsyncPasswordManagerClient.causeOf(error);
+                }
+                if (sessionToken != null) {
+                    messageLabel.setText("Connexion réussie !");
+                    messageLabel.getStyleClass().remove("error-label");
+                    messageLabel.getStyleClass().add("success-label");
+                    System.out.println("Login successful for user: " + username);
 
-                Scene scene = new Scene(root);
-                stage.setScene(scene);
-                stage.setTitle("Gestionnaire de Mots de Passe");
-                stage.show();
+                    // Navigate to the main application view, normally preloaded by now
+                    mainView.whenCompleteAsync((loader, loadError) -> {
+                        try {
+                            showMainView(stage, loadError == null ? loader : loadMainView(loadError), username, sessionToken, firstPage);
+                        } catch (Exception e) {
+                            messageLabel.setText("Erreur lors de la connexion : " + e.getMessage());
+                            messageLabel.getStyleClass().remove("success-label");
+                            messageLabel.getStyleClass().add("error-label");
+                            e.printStackTrace();
+                            client.logout(sessionToken); // The user will log in again
+                            loginButton.setDisable(false);
+                        }
+                    }, Platform::runLater);
 
-            } else {
-                messageLabel.setText("Nom d'utilisateur ou mot de passe invalide.");
+                } else {
+                    loginButton.setDisable(false);
+                    messageLabel.setText("Nom d'utilisateur ou mot de passe invalide.");
+                    messageLabel.getStyleClass().remove("success-label");
+                    messageLabel.getStyleClass().add("error-label");
+                    usernameField.getStyleClass().add("error-field");
+                    passwordField.getStyleClass().add("error-field");
+                }
+            } catch (Throwable e) {
+                loginButton.setDisable(false);
+                messageLabel.setText("Erreur lors de la connexion : " + e.getMessage());
                 messageLabel.getStyleClass().remove("success-label");
                 messageLabel.getStyleClass().add("error-label");
-                usernameField.getStyleClass().add("error-field");
-                passwordField.getStyleClass().add("error-field");
+                e.printStackTrace();
             }
-        } catch (Exception e) {
-            messageLabel.setText("Erreur lors de la connexion : " + e.getMessage());
-            messageLabel.getStyleClass().remove("success-label");
-            messageLabel.getStyleClass().add("error-label");
-            e.printStackTrace();
-        }
+        }, Platform::runLater);
+    }
+
+    /**
+     * Loads the main view on the JavaFX thread, when preloading it failed.
+     */
+    private FXMLLoader loadMainView(Throwable preloadError) throws Exception {
+        System.err.println("Main view could not be preloaded: " + preloadError.getMessage());
+        FXMLLoader loader = new FXMLLoader(Objects.requireNonNull(getClass().getResource(MAIN_VIEW)));
+        loader.load();
+        return loader;
+    }
+
+    private void showMainView(Stage stage, FXMLLoader loader, String username, String sessionToken,
+                              CompletableFuture<PasswordPage> firstPage) {
+        MainController mainController = loader.getController();
+        mainController.setSession(username, sessionToken, firstPage);
+
+        Parent root = loader.getRoot();
+        Scene scene = new Scene(root);
+        stage.setScene(scene);
+        stage.setTitle("Gestionnaire de Mots de Passe");
+        stage.show();
     }
 
     /**
@@ -159,8 +243,15 @@ public class LoginController {
             return;
         }
 
-        try {
-            if (client.register(username, password)) {
+        messageLabel.setText("Enregistrement en cours...");
+        client.register(username, password).whenCompleteAsync((registered, error) -> {
+            if (error != null) {
+                Throwable cause = AsyncPasswordManagerClient.causeOf(error);
+                messageLabel.setText("Erreur lors de l'enregistrement : " + cause.getMessage());
+                messageLabel.getStyleClass().remove("success-label");
+                messageLabel.getStyleClass().add("error-label");
+                cause.printStackTrace();
+            } else if (registered) {
                 messageLabel.setText("Enregistrement réussi ! Vous pouvez maintenant vous connecter.");
                 messageLabel.getStyleClass().remove("error-label");
                 messageLabel.getStyleClass().add("success-label");
@@ -171,12 +262,7 @@ public class LoginController {
                 messageLabel.getStyleClass().add("error-label");
                 usernameField.getStyleClass().add("error-field");
             }
-        } catch (Exception e) {
-            messageLabel.setText("Erreur lors de l'enregistrement : " + e.getMessage());
-            messageLabel.getStyleClass().remove("success-label");
-            messageLabel.getStyleClass().add("error-label");
-            e.printStackTrace();
-        }
+        }, Platform::runLater);
     }
 
     /**
@@ -1,18 +1,31 @@
 package com.passwordmanager.client.gui;
 
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
-import com.passwordmanager.client.PasswordManagerClient;
+import com.passwordmanager.client.AsyncPasswordManagerClient;
+import com.passwordmanager.common.ChangeSet;
 import com.passwordmanager.common.PasswordEntry;
+import com.passwordmanager.common.PasswordPage;
+import com.passwordmanager.common.VaultEvent;
+import com.passwordmanager.common.VaultListener;
 
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyStringWrapper;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
+import javafx.collections.transformation.SortedList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
-import javafx.geometry.Pos;
 import javafx.scene.Node;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
@@ -20,17 +33,16 @@ import javafx.scene.control.Label;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import javafx.scene.control.TextField;
-import javafx.scene.control.cell.PropertyValueFactory;
-import javafx.scene.input.Clipboard;
-import javafx.scene.input.ClipboardContent;
-import javafx.scene.layout.HBox;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 
 /**
  * Controller for the MainView.fxml, handling password management operations
  * such as adding, updating, deleting, listing, and searching passwords.
- * It interacts with the PasswordManagerClient to communicate with the RMI server
- * and provides visual feedback to the user through the UI.
+ * It interacts with the AsyncPasswordManagerClient to communicate with the RMI server
+ * and provides visual feedback to the user through the UI. Server calls complete in the
+ * background and their results are applied on the JavaFX application thread.
+ * Changes made by other clients of the same user are pushed by the server and applied to the table as they come.
  */
 public class MainController {
 
@@ -53,19 +65,55 @@ public class MainController {
     @FXML
     private TextField searchField;
 
-    private PasswordManagerClient client;
+    // Height of the table rows, as set by -fx-cell-size in style.css
+    static final double ROW_HEIGHT = 40;
+
+    private AsyncPasswordManagerClient client;
     private String loggedInUsername;
+    private String sessionToken;
+    // Vault version the table is synchronized to; 0 until the whole vault is loaded
+    private long syncedVersion;
+    // Incremented whenever the table is reloaded, so that the results of an older load are dropped
+    private int loadGeneration;
+    // Whether the pages of a full load are still being fetched, and whether changes were pushed meanwhile
+    private boolean pagesLoading;
+    private boolean pendingRefresh;
+    // Subscription to the changes pushed by the server, null until it is registered
+    private VaultListener vaultListener;
+    // Entries fetched per page when the whole vault is loaded
+    static final int PAGE_SIZE = 200;
+    // Delay after the last keystroke before the table is filtered
+    private static final Duration SEARCH_DEBOUNCE = Duration.millis(150);
+    // Rows of the table, and the same entries by website, so that a change updates its row in place
     private ObservableList<PasswordEntry> passwordList;
+    private final Map<String, PasswordEntry> entriesByWebsite = new HashMap<>();
+    // Lowercase "website\nusername" of each entry by website, matched by the search filter
+    private final Map<String, String> searchKeys = new HashMap<>();
+    // The rows shown: passwordList filtered by the search field, in the order of the sorted column
+    private FilteredList<PasswordEntry> filteredList;
+    private final PauseTransition searchDebounce = new PauseTransition(SEARCH_DEBOUNCE);
 
     /**
-     * Sets the username of the currently logged-in user and initializes the client
+     * Sets the session of the currently logged-in user and initializes the client
      * and loads passwords for this user.
      * @param username The username of the logged-in user.
+     * @param sessionToken The session token returned by the login.
+     */
+    public void setSession(String username, String sessionToken) {
+        setSession(username, sessionToken, null);
+    }
+
+    /**
+     * Sets the session of the currently logged-in user, whose first page of passwords was already requested.
+     * @param firstPage The first page of the vault, requested with {@link #PAGE_SIZE} entries and no cursor;
+     * null to request it now.
      */
-    public void setLoggedInUsername(String username) {
+    public void setSession(String username, String sessionToken, CompletableFuture<PasswordPage> firstPage) {
         this.loggedInUsername = username;
+        this.sessionToken = sessionToken;
         initializeClient();
-        loadPasswords();
+        loadPasswords(firstPage);
+        subscribeToChanges();
     }
 
     /**
@@ -76,65 +124,23 @@ public class MainController {
      */
     @FXML
     public void initialize() {
-        // Configure table columns
-        websiteColumn.setCellValueFactory(new PropertyValueFactory<>("website"));
-        usernameColumn.setCellValueFactory(new PropertyValueFactory<>("username"));
-        // Custom cell factory for password column
-        passwordColumn.setCellValueFactory(new PropertyValueFactory<>("password"));
+        // Configure table columns; plain getters, since PropertyValueFactory looks them up reflectively for each cell
+        websiteColumn.setCellValueFactory(cell -> new ReadOnlyStringWrapper(cell.getValue().getWebsite()));
+        usernameColumn.setCellValueFactory(cell -> new ReadOnlyStringWrapper(cell.getValue().getUsername()));
+        passwordColumn.setCellValueFactory(cell -> new ReadOnlyStringWrapper(cell.getValue().getPassword()));
         // Gère l'affichage des mots de passe (masqués ou visibles)
-        passwordColumn.setCellFactory(column -> {
-            return new javafx.scene.control.TableCell<PasswordEntry, String>() {
-                private final Label maskedLabel = new Label();
-                private final Label visibleLabel = new Label();
-                private final javafx.scene.control.Button toggleVisibilityButton = new javafx.scene.control.Button();
-                private final javafx.scene.control.Button copyButton = new javafx.scene.control.Button();
-                private final HBox container = new HBox(5);
-
-                private boolean passwordVisible = false;
-
-                {
-                    toggleVisibilityButton.setText("👁️"); // Eye icon
-                    toggleVisibilityButton.getStyleClass().add("password-action-button");
-                    toggleVisibilityButton.setOnAction(event -> {
-                        passwordVisible = !passwordVisible;
-                        updateItem(getItem(), isEmpty()); // Re-render the cell
-                    });
-                    // Action sur le bouton copier
-                    copyButton.setText("📋"); // Copy icon
-                    copyButton.getStyleClass().add("password-action-button");
-                    copyButton.setOnAction(event -> {
-                        final Clipboard clipboard = Clipboard.getSystemClipboard();
-                        final ClipboardContent content = new ClipboardContent();
-                        content.putString(getItem()); // Get the actual password
-                        clipboard.setContent(content);
-                        statusLabel.setText("Password copied to clipboard!");
-                        statusLabel.getStyleClass().add("success-label");
-                    });
-
-                    container.setAlignment(Pos.CENTER_LEFT);
-                    container.getStyleClass().add("password-cell");
-                }
-
-                @Override
-                protected void updateItem(String password, boolean empty) {
-                    super.updateItem(password, empty);
-                    if (empty || password == null) {
-                        setGraphic(null);
-                    } else {
-                        if (passwordVisible) {
-                            visibleLabel.setText(password);
-                            setGraphic(new HBox(5, visibleLabel, toggleVisibilityButton, copyButton));
-                        } else {
-                            maskedLabel.setText("•".repeat(password.length()));
-                            setGraphic(new HBox(5, maskedLabel, toggleVisibilityButton, copyButton));
-                        }
-                    }
-                }
-            };
-        });
-        // Initialise la liste observable et la lie à la table
+        passwordColumn.setCellFactory(column -> new PasswordCell(this::revealPassword, () -> {
+            statusLabel.setText("Password copied to clipboard!");
+            statusLabel.getStyleClass().add("success-label");
+        }));
+        // Rows all have the height set by style.css, so the table does not measure each row it shows
+        passwordTable.setFixedCellSize(ROW_HEIGHT);
+        // Initialise la liste observable et la lie à la table, filtrée par la recherche et triée par colonne
         passwordList = FXCollections.observableArrayList();
-        passwordTable.setItems(passwordList);
+        filteredList = new FilteredList<>(passwordList);
+        SortedList<PasswordEntry> sortedList = new SortedList<>(filteredList);
+        sortedList.comparatorProperty().bind(passwordTable.comparatorProperty());
+        passwordTable.setItems(sortedList);
 
         // Sélection d'une ligne dans la table remplit les champs de saisie
         passwordTable.getSelectionModel().selectedItemProperty().addListener(
@@ -142,7 +148,12 @@ public class MainController {
                     if (newSelection != null) {
                         websiteField.setText(newSelection.getWebsite());
                         entryUsernameField.setText(newSelection.getUsername());
-                        entryPasswordField.setText(newSelection.getPassword());
+                        entryPasswordField.clear();
+                        revealPassword(newSelection, password -> {
+                            if (passwordTable.getSelectionModel().getSelectedItem() == newSelection) {
+                                entryPasswordField.setText(password);
+                            }
+                        });
                         clearInputStyling(); // Clear error styling on selection
                     }
                 });
@@ -152,81 +163,331 @@ public class MainController {
         entryUsernameField.textProperty().addListener((obs, oldText, newText) -> clearStatusMessage());
         entryPasswordField.textProperty().addListener((obs, oldText, newText) -> clearStatusMessage());
         searchField.textProperty().addListener((obs, oldText, newText) -> clearStatusMessage());
+        // Search as you type, once typing pauses
+        searchDebounce.setOnFinished(event -> applySearchFilter());
+        searchField.textProperty().addListener((obs, oldText, newText) -> searchDebounce.playFromStart());
     }
 
     /**
-     * Initializes the PasswordManagerClient. This method ensures that the client
+     * Initializes the AsyncPasswordManagerClient. This method ensures that the client
      * is ready to communicate with the RMI server. It's called when the logged-in
      * username is set.
      */
     private void initializeClient() {
-        // This client should already be connected via LoginController, but we ensure it here.
-        // In a more robust app, we would pass the client instance from the login scene.
+        // The connection is shared with LoginController, which already looked the server up
         if (client == null) {
-            client = new PasswordManagerClient();
+            client = AsyncPasswordManagerClient.shared();
+        }
+    }
+
+    /**
+     * Subscribes to the changes of the vault made by other clients, which are then applied on the JavaFX thread.
+     * Without the subscription, for instance over the binary transport, the table is only updated on refresh.
+     */
+    private void subscribeToChanges() {
+        final String token = sessionToken;
+        final AsyncPasswordManagerClient subscriber = client;
+        subscriber.subscribe(token, events -> Platform.runLater(() -> applyEvents(token, events)))
+                .whenCompleteAsync((listener, error) -> {
+                    if (error != null) {
+                        System.err.println("Change notifications unavailable: " + AsyncPasswordManagerClient.causeOf(error).getMessage());
+                    } else if (!token.equals(sessionToken)) {
+                        subscriber.unsubscribe(token, listener); // Logged out meanwhile
+                    } else {
+                        vaultListener = listener;
+                    }
+                }, Platform::runLater);
+    }
+
+    /**
+     * Applies the changes pushed by the server when the table holds the whole vault. Changes pushed while
+     * the vault is still being loaded are fetched once it is.
+     * @param token The session the events were subscribed for; events of an older session are dropped.
+     * @param events The changes, in the order they were made.
+     */
+    private void applyEvents(String token, List<VaultEvent> events) {
+        if (!token.equals(sessionToken)) {
+            return;
+        }
+        if (pagesLoading) {
+            pendingRefresh = true;
+            return;
+        }
+        if (syncedVersion == 0) {
+            return;
+        }
+        Set<String> deleted = new HashSet<>();
+        for (VaultEvent event : events) {
+            switch (event.getType()) {
+                case ADDED:
+                case UPDATED:
+                    deleted.remove(event.getEntry().getWebsite()); // Deleted then added again
+                    putEntry(event.getEntry());
+                    break;
+                case DELETED:
+                    deleted.add(event.getWebsite());
+                    break;
+                case RESYNC:
+                    loadPasswords(); // Events were dropped, fetch everything changed since the last load
+                    return;
+            }
+        }
+        removeEntries(deleted);
+    }
+
+    /**
+     * Replaces the rows of the table with the given entries.
+     */
+    private void showEntries(List<PasswordEntry> entries) {
+        entriesByWebsite.clear();
+        searchKeys.clear();
+        for (PasswordEntry entry : entries) {
+            entriesByWebsite.put(entry.getWebsite(), entry);
+            searchKeys.put(entry.getWebsite(), searchKeyOf(entry));
+        }
+        passwordList.setAll(entries);
+    }
+
+    /**
+     * Appends entries whose websites are not in the table yet.
+     */
+    private void appendEntries(List<PasswordEntry> entries) {
+        for (PasswordEntry entry : entries) {
+            entriesByWebsite.put(entry.getWebsite(), entry);
+            searchKeys.put(entry.getWebsite(), searchKeyOf(entry));
+        }
+        passwordList.addAll(entries);
+    }
+
+    /**
+     * Replaces the row of the entry's website in place, or appends the entry if the website is new.
+     * The other rows, the selection and the scroll position are left untouched.
+     */
+    private void putEntry(PasswordEntry entry) {
+        final PasswordEntry previous = entriesByWebsite.put(entry.getWebsite(), entry);
+        searchKeys.put(entry.getWebsite(), searchKeyOf(entry));
+        final int row = previous == null ? -1 : passwordList.indexOf(previous);
+        if (row >= 0) {
+            passwordList.set(row, entry);
+        } else {
+            passwordList.add(entry);
+        }
+    }
+
+    /**
+     * Removes the rows of some websites, if they are shown.
+     */
+    private void removeEntries(Set<String> websites) {
+        boolean shown = false;
+        for (String website : websites) {
+            shown |= entriesByWebsite.remove(website) != null;
+            searchKeys.remove(website);
+        }
+        if (shown) {
+            passwordList.removeIf(entry -> websites.contains(entry.getWebsite()));
         }
     }
 
     /**
      * Loads password entries for the logged-in user from the RMI server
-     * and populates the password table. Updates the status label based on the outcome.
+     * and populates the password table. The whole vault is shown page by page, the first page
+     * as soon as it arrives and the others as they follow; once the table holds the whole vault,
+     * only the changes since the last load are fetched. Updates the status label based on the outcome.
      */
     private void loadPasswords() {
+        loadPasswords(null);
+    }
+
+    /**
+     * @param firstPageRequest The first page if it was already requested, otherwise null.
+     */
+    private void loadPasswords(CompletableFuture<PasswordPage> firstPageRequest) {
         if (loggedInUsername == null || client == null) {
             statusLabel.setText("Error: User not logged in or client not initialized.");
             statusLabel.getStyleClass().add("error-label");
             System.err.println("Error: User not logged in or client not initialized during password loading.");
             return;
         }
-        try {
-            List<PasswordEntry> entries = client.listPasswords(loggedInUsername);
-            passwordList.setAll(entries);
-            statusLabel.setText("Passwords loaded.");
-            statusLabel.getStyleClass().remove("error-label");
-            statusLabel.getStyleClass().add("success-label");
-            System.out.println("Passwords successfully loaded for user: " + loggedInUsername);
-        } catch (Exception e) {
-            statusLabel.setText("Error loading passwords: " + e.getMessage());
-            statusLabel.getStyleClass().add("error-label");
-            System.err.println("Error loading passwords for user " + loggedInUsername + ": " + e.getMessage());
-            e.printStackTrace();
+        final int generation = ++loadGeneration;
+        if (syncedVersion == 0) {
+            pagesLoading = true;
+            final CompletableFuture<PasswordPage> request = firstPageRequest != null ? firstPageRequest
+                    : client.listPasswordPage(sessionToken, null, PAGE_SIZE);
+            request.whenCompleteAsync((firstPage, error) -> {
+                if (generation != loadGeneration) {
+                    return;
+                }
+                if (error != null) {
+                    pagesLoading = false;
+                    showLoadError(error);
+                    return;
+                }
+                showEntries(firstPage.getEntries());
+                if (firstPage.getNextCursor() == null) {
+                    finishPages(firstPage);
+                } else {
+                    loadNextPage(generation, firstPage, firstPage.getNextCursor());
+                }
+                showLoaded();
+            }, Platform::runLater);
+        } else {
+            client.changesSince(sessionToken, syncedVersion).whenCompleteAsync((changes, error) -> {
+                if (generation != loadGeneration) {
+                    return;
+                }
+                if (error != null) {
+                    showLoadError(error);
+                    return;
+                }
+                if (changes.isFull()) {
+                    showEntries(changes.getChanged());
+                } else {
+                    applyChanges(changes);
+                }
+                syncedVersion = changes.getVersion();
+                showLoaded();
+            }, Platform::runLater);
+        }
+    }
+
+    private void showLoaded() {
+        statusLabel.setText("Passwords loaded.");
+        statusLabel.getStyleClass().remove("error-label");
+        statusLabel.getStyleClass().add("success-label");
+        System.out.println("Passwords successfully loaded for user: " + loggedInUsername);
+    }
+
+    private void showLoadError(Throwable error) {
+        final Throwable cause = AsyncPasswordManagerClient.causeOf(error);
+        statusLabel.setText("Error loading passwords: " + cause.getMessage());
+        statusLabel.getStyleClass().add("error-label");
+        System.err.println("Error loading passwords for user " + loggedInUsername + ": " + cause.getMessage());
+        cause.printStackTrace();
+    }
+
+    /**
+     * Fetches the page following the ones already shown and appends it to the table, then the next one,
+     * until the last page. The table is then marked as synchronized to the first page's version, so that
+     * the next refresh also picks up the changes made while the pages were fetched.
+     * @param generation The load the pages belong to; pages of an outdated load are dropped.
+     * @param firstPage The first page of the load.
+     * @param cursor The next cursor of the last page shown.
+     */
+    private void loadNextPage(int generation, PasswordPage firstPage, String cursor) {
+        client.listPasswordPage(sessionToken, cursor, PAGE_SIZE).whenCompleteAsync((page, error) -> {
+            if (generation != loadGeneration) {
+                return;
+            }
+            if (error != null) {
+                pagesLoading = false;
+                showLoadError(error);
+                return;
+            }
+            appendEntries(page.getEntries());
+            if (page.getNextCursor() != null) {
+                loadNextPage(generation, firstPage, page.getNextCursor());
+            } else {
+                finishPages(firstPage);
+                System.out.println("All " + passwordList.size() + " passwords loaded for user: " + loggedInUsername);
+            }
+        }, Platform::runLater);
+    }
+
+    /**
+     * Marks the table as synchronized once the last page is shown, then fetches the changes pushed meanwhile.
+     */
+    private void finishPages(PasswordPage firstPage) {
+        syncedVersion = firstPage.getVersion();
+        pagesLoading = false;
+        if (pendingRefresh) {
+            pendingRefresh = false;
+            loadPasswords();
+        }
+    }
+
+    /**
+     * Applies a delta change set to the table: a changed entry replaces the row of its website,
+     * or is appended if it is new, and the rows of deleted websites are removed.
+     * @param changes The changes since the table's version.
+     */
+    private void applyChanges(ChangeSet changes) {
+        for (PasswordEntry entry : changes.getChanged()) {
+            putEntry(entry);
         }
+        removeEntries(new HashSet<>(changes.getDeleted()));
+    }
+
+    /**
+     * Passes the password of an entry to a callback on the JavaFX thread, fetching and decrypting it on
+     * the server the first time it is needed. The result is kept on the entry for the following calls.
+     * @param entry The table entry whose password is requested.
+     * @param onRevealed Called with the password; not called if it could not be retrieved.
+     */
+    private void revealPassword(PasswordEntry entry, Consumer<String> onRevealed) {
+        if (entry == null) {
+            return;
+        }
+        if (entry.getPassword() != null) {
+            onRevealed.accept(entry.getPassword());
+            return;
+        }
+        client.revealPassword(sessionToken, entry.getWebsite()).whenCompleteAsync((password, error) -> {
+            if (error != null) {
+                final Throwable cause = AsyncPasswordManagerClient.causeOf(error);
+                statusLabel.setText("Error revealing password: " + cause.getMessage());
+                statusLabel.getStyleClass().add("error-label");
+                System.err.println("Error revealing password for website " + entry.getWebsite() + ": " + cause.getMessage());
+                cause.printStackTrace();
+            } else if (password != null) {
+                entry.setPassword(password);
+                onRevealed.accept(password);
+            }
+        }, Platform::runLater);
+    }
+
+    private static String searchKeyOf(PasswordEntry entry) {
+        // The separator keeps a query from matching across the website and the username, either of which may be missing
+        return lowerCaseOf(entry.getWebsite()) + "\n" + lowerCaseOf(entry.getUsername());
+    }
+
+    private static String lowerCaseOf(String value) {
+        return value == null ? "" : value.toLowerCase();
     }
 
     /**
      * Handles the search action, filtering password entries based on the text
-     * entered in the search field. The search is performed on website and username fields.
+     * entered in the search field, without waiting for the debounce delay.
      */
     @FXML
     private void handleSearch() {
         clearInputStyling(); // Clear any previous error styling
-        final String searchText = searchField.getText().toLowerCase();
+        searchDebounce.stop();
+        applySearchFilter();
+    }
+
+    /**
+     * Shows the loaded entries whose website or username contains the search text, ignoring case.
+     * Matching runs locally on the precomputed keys, and entries loaded or changed later are filtered too.
+     */
+    private void applySearchFilter() {
+        final String searchText = searchField.getText().trim().toLowerCase();
         if (searchText.isEmpty()) {
-            loadPasswords(); // If search text is empty, load all passwords
-        } else {
-            try {
-                final List<PasswordEntry> allEntries = client.listPasswords(loggedInUsername);
-                final ObservableList<PasswordEntry> filteredList = FXCollections.observableArrayList(allEntries.stream()
-                        .filter(entry -> entry.getWebsite().toLowerCase().contains(searchText) ||
-                                         entry.getUsername().toLowerCase().contains(searchText))
-                        .collect(Collectors.toList()));
-                passwordList.setAll(filteredList);
-                statusLabel.setText("Search results for '" + searchText + "'.");
-                statusLabel.getStyleClass().remove("error-label");
-                statusLabel.getStyleClass().add("success-label");
-                System.out.println("Search performed for '" + searchText + "'. Found " + filteredList.size() + " entries.");
-            } catch (Exception e) {
-                statusLabel.setText("Error during search: " + e.getMessage());
-                statusLabel.getStyleClass().add("error-label");
-                System.err.println("Error during password search: " + e.getMessage());
-                e.printStackTrace();
-            }
+            filteredList.setPredicate(null);
+            return;
         }
+        filteredList.setPredicate(entry -> {
+            final String key = searchKeys.get(entry.getWebsite());
+            return key != null && key.contains(searchText);
+        });
+        statusLabel.setText("Search results for '" + searchText + "'.");
+        statusLabel.getStyleClass().remove("error-label");
+        statusLabel.getStyleClass().add("success-label");
+        System.out.println("Search performed for '" + searchText + "'. Found " + filteredList.size() + " entries.");
     }
 
     /**
      * Handles the action for adding a new password entry.
-     * It validates input fields, sends the new entry to the server, and updates the UI.
+     * It validates input fields, sends the new entry to the server, and adds its row to the table.
      */
     @FXML
     private void handleAddPassword() {
@@ -255,25 +516,27 @@ public class MainController {
             System.err.println("Validation failed for adding password: Empty fields.");
             return;
         }
-        try {
-            client.addPassword(loggedInUsername, new PasswordEntry(website, username, password));
+        client.addPassword(sessionToken, new PasswordEntry(website, username, password)).whenCompleteAsync((result, error) -> {
+            if (error != null) {
+                final Throwable e = AsyncPasswordManagerClient.causeOf(error);
+                statusLabel.setText("Erreur lors de l'ajout du mot de passe : " + e.getMessage());
+                statusLabel.getStyleClass().add("error-label");
+                System.err.println("Error adding password for user " + loggedInUsername + ": " + e.getMessage());
+                e.printStackTrace();
+                return;
+            }
             statusLabel.setText("Mot de passe ajouté avec succès.");
             statusLabel.getStyleClass().remove("error-label");
             statusLabel.getStyleClass().add("success-label");
+            putEntry(new PasswordEntry(website, username, password));
             clearFields();
-            loadPasswords();
             System.out.println("Password added successfully for user " + loggedInUsername + " for website " + website);
-        } catch (Exception e) {
-            statusLabel.setText("Erreur lors de l'ajout du mot de passe : " + e.getMessage());
-            statusLabel.getStyleClass().add("error-label");
-            System.err.println("Error adding password for user " + loggedInUsername + ": " + e.getMessage());
-            e.printStackTrace();
-        }
+        }, Platform::runLater);
     }
 
     /**
      * Handles the action for updating an existing password entry.
-     * It validates input fields, sends the updated entry to the server, and refreshes the UI.
+     * It validates input fields, sends the updated entry to the server, and replaces its row in the table.
      */
     @FXML
     private void handleUpdatePassword() {
@@ -302,25 +565,28 @@ public class MainController {
             System.err.println("Validation failed for updating password: Empty fields.");
             return;
         }
-        try {
-            client.updatePassword(loggedInUsername, new PasswordEntry(website, username, password));
+        client.updatePassword(sessionToken, new PasswordEntry(website, username, password)).whenCompleteAsync((result, error) -> {
+            if (error != null) {
+                final Throwable e = AsyncPasswordManagerClient.causeOf(error);
+                statusLabel.setText("Erreur lors de la mise à jour du mot de passe : " + e.getMessage());
+                statusLabel.getStyleClass().add("error-label");
+                System.err.println("Error updating password for user " + loggedInUsername + ": " + e.getMessage());
+                e.printStackTrace();
+                return;
+            }
             statusLabel.setText("Mot de passe mis à jour avec succès.");
             statusLabel.getStyleClass().remove("error-label");
             statusLabel.getStyleClass().add("success-label");
+            // Before clearing the fields, which the selection of the replaced row would fill again
+            putEntry(new PasswordEntry(website, username, password));
             clearFields();
-            loadPasswords();
             System.out.println("Password updated successfully for user " + loggedInUsername + " for website " + website);
-        } catch (Exception e) {
-            statusLabel.setText("Erreur lors de la mise à jour du mot de passe : " + e.getMessage());
-            statusLabel.getStyleClass().add("error-label");
-            System.err.println("Error updating password for user " + loggedInUsername + ": " + e.getMessage());
-            e.printStackTrace();
-        }
+        }, Platform::runLater);
     }
 
     /**
      * Handles the action for deleting a password entry.
-     * It validates the website field, sends the delete request to the server, and refreshes the UI.
+     * It validates the website field, sends the delete request to the server, and removes its row from the table.
      */
     @FXML
     private void handleDeletePassword() {
@@ -333,20 +599,22 @@ public class MainController {
             System.err.println("Validation failed for deleting password: Empty website field.");
             return;
         }
-        try {
-            client.deletePassword(loggedInUsername, website);
+        client.deletePassword(sessionToken, website).whenCompleteAsync((result, error) -> {
+            if (error != null) {
+                final Throwable e = AsyncPasswordManagerClient.causeOf(error);
+                statusLabel.setText("Erreur lors de la suppression du mot de passe : " + e.getMessage());
+                statusLabel.getStyleClass().add("error-label");
+                System.err.println("Error deleting password for user " + loggedInUsername + " for website " + website + ": " + e.getMessage());
+                e.printStackTrace();
+                return;
+            }
             statusLabel.setText("Mot de passe supprimé avec succès.");
             statusLabel.getStyleClass().remove("error-label");
             statusLabel.getStyleClass().add("success-label");
+            removeEntries(Set.of(website));
             clearFields();
-            loadPasswords();
             System.out.println("Password deleted successfully for user " + loggedInUsername + " for website " + website);
-        } catch (Exception e) {
-            statusLabel.setText("Erreur lors de la suppression du mot de passe : " + e.getMessage());
-            statusLabel.getStyleClass().add("error-label");
-            System.err.println("Error deleting password for user " + loggedInUsername + " for website " + website + ": " + e.getMessage());
-            e.printStackTrace();
-        }
+        }, Platform::runLater);
     }
 
     /**
@@ -397,10 +665,28 @@ public class MainController {
     @FXML
     private void handleLogout(ActionEvent event) {
         try {
-            // Clear any session-related data (if applicable)
+            // Close the session on the server, then clear the local session data
+            if (client != null && sessionToken != null) {
+                final AsyncPasswordManagerClient closing = client;
+                final String token = sessionToken;
+                // Stop the pushed changes first, so that the listener is unexported
+                CompletableFuture<Void> unsubscribed = vaultListener == null ? CompletableFuture.completedFuture(null)
+                        : closing.unsubscribe(token, vaultListener).exceptionally(error -> null);
+                unsubscribed.thenCompose(result -> closing.logout(token)).whenComplete((result, error) -> {
+                    if (error != null) {
+                        System.err.println("Error closing session: " + AsyncPasswordManagerClient.causeOf(error).getMessage());
+                    }
+                });
+            }
             loggedInUsername = null;
-            client = null; // Disconnect client from server (optional, re-initializes on login)
-            passwordList.clear();
+            sessionToken = null;
+            syncedVersion = 0;
+            loadGeneration++;
+            pagesLoading = false;
+            pendingRefresh = false;
+            vaultListener = null;
+            client = null; // The shared connection stays open for the next login
+            showEntries(List.of());
             clearInputStyling(); // Clear any lingering styling on logout
             System.out.println("User logged out successfully.");
 
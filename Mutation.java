@@ -0,0 +1,74 @@
+package com.passwordmanager.common;
+
+import java.io.Serializable;
+
+/**
+ * One change of a batch sent with {@link PasswordManagerService#applyBatch}.
+ * ADD and UPDATE carry an entry with its plain password, DELETE only the website.
+ */
+public class Mutation implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public enum Type { ADD, UPDATE, DELETE }
+
+    private Type type;
+    private PasswordEntry entry;
+    private String website;
+
+    // Default constructor for JSON serialization/deserialization
+    public Mutation() {
+    }
+
+    public static Mutation add(PasswordEntry entry) {
+        Mutation mutation = new Mutation();
+        mutation.type = Type.ADD;
+        mutation.entry = entry;
+        return mutation;
+    }
+
+    public static Mutation update(PasswordEntry entry) {
+        Mutation mutation = new Mutation();
+        mutation.type = Type.UPDATE;
+        mutation.entry = entry;
+        return mutation;
+    }
+
+    public static Mutation delete(String website) {
+        Mutation mutation = new Mutation();
+        mutation.type = Type.DELETE;
+        mutation.website = website;
+        return mutation;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public PasswordEntry getEntry() {
+        return entry;
+    }
+
+    public void setEntry(PasswordEntry entry) {
+        this.entry = entry;
+    }
+
+    public String getWebsite() {
+        return website;
+    }
+
+    public void setWebsite(String website) {
+        this.website = website;
+    }
+
+    @Override
+    public String toString() {
+        return "Mutation{" +
+               "type=" + type +
+               ", website='" + (entry != null ? entry.getWebsite() : website) + '\'' +
+               "}";
+    }
+}
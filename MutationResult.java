@@ -0,0 +1,53 @@
+package com.passwordmanager.common;
+
+import java.io.Serializable;
+
+/**
+ * Outcome of one mutation of a batch, at the same position as the mutation.
+ */
+public class MutationResult implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private boolean applied;
+    private String error;
+
+    // Default constructor for JSON serialization/deserialization
+    public MutationResult() {
+    }
+
+    public static MutationResult applied() {
+        MutationResult result = new MutationResult();
+        result.applied = true;
+        return result;
+    }
+
+    public static MutationResult failed(String error) {
+        MutationResult result = new MutationResult();
+        result.error = error;
+        return result;
+    }
+
+    public boolean isApplied() {
+        return applied;
+    }
+
+    public void setApplied(boolean applied) {
+        this.applied = applied;
+    }
+
+    /**
+     * @return why the mutation was not applied, or null if it was.
+     */
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    @Override
+    public String toString() {
+        return applied ? "MutationResult{applied}" : "MutationResult{error='" + error + "'}";
+    }
+}
@@ -0,0 +1,160 @@
+package com.passwordmanager.common;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * List of entries returned over RMI, written as one packed record instead of one serialized object
+ * per entry. Websites and usernames are deduplicated through a string table, so a username shared by
+ * many entries is sent once, and versions are written as variable-length offsets from the smallest one.
+ * <pre>
+ * list   := count:varint baseVersion:int64 entry*
+ * entry  := website:string username:string password:string versionOffset:varint
+ * string := 0 (null) | 1 length:int32 UTF-8 bytes (new string, added to the table) | n + 2 (table reference n)
+ * </pre>
+ * Passwords are written literally, they are not worth a table slot.
+ */
+public class PackedEntryList extends AbstractList<PasswordEntry> implements Externalizable, RandomAccess {
+    private static final long serialVersionUID = 2L;
+
+    private static final int NULL_STRING = 0;
+    private static final int NEW_STRING = 1;
+    private static final int STRING_REFERENCE = 2;
+
+    private List<PasswordEntry> entries;
+
+    // Required by Externalizable
+    public PackedEntryList() {
+        this.entries = new ArrayList<>();
+    }
+
+    public PackedEntryList(Collection<PasswordEntry> entries) {
+        this.entries = new ArrayList<>(entries);
+    }
+
+    @Override
+    public PasswordEntry get(int index) {
+        return entries.get(index);
+    }
+
+    @Override
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public PasswordEntry set(int index, PasswordEntry entry) {
+        return entries.set(index, entry);
+    }
+
+    @Override
+    public void add(int index, PasswordEntry entry) {
+        entries.add(index, entry);
+    }
+
+    @Override
+    public PasswordEntry remove(int index) {
+        return entries.remove(index);
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        long baseVersion = Long.MAX_VALUE;
+        for (PasswordEntry entry : entries) {
+            baseVersion = Math.min(baseVersion, entry.getVersion());
+        }
+        writeVarint(out, entries.size());
+        out.writeLong(entries.isEmpty() ? 0 : baseVersion);
+        Map<String, Integer> table = new HashMap<>();
+        for (PasswordEntry entry : entries) {
+            writeString(out, entry.getWebsite(), table);
+            writeString(out, entry.getUsername(), table);
+            writeString(out, entry.getPassword(), null);
+            writeVarint(out, entry.getVersion() - baseVersion);
+        }
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        int count = (int) readVarint(in);
+        long baseVersion = in.readLong();
+        List<String> table = new ArrayList<>();
+        entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            PasswordEntry entry = new PasswordEntry(readString(in, table), readString(in, table), readString(in, null));
+            entry.setVersion(baseVersion + readVarint(in));
+            entries.add(entry);
+        }
+    }
+
+    /**
+     * Writes a string, or a reference to its first occurrence if a table is given.
+     */
+    private static void writeString(ObjectOutput out, String value, Map<String, Integer> table) throws IOException {
+        if (value == null) {
+            writeVarint(out, NULL_STRING);
+            return;
+        }
+        Integer reference = table == null ? null : table.get(value);
+        if (reference != null) {
+            writeVarint(out, STRING_REFERENCE + reference);
+            return;
+        }
+        writeVarint(out, NEW_STRING);
+        PasswordEntry.writeString(out, value);
+        if (table != null) {
+            table.put(value, table.size());
+        }
+    }
+
+    /**
+     * Reads a string written by writeString, with the same table (or none) as the writer used.
+     */
+    private static String readString(ObjectInput in, List<String> table) throws IOException {
+        long tag = readVarint(in);
+        if (tag == NULL_STRING) {
+            return null;
+        }
+        if (tag == NEW_STRING) {
+            String value = PasswordEntry.readString(in);
+            if (table != null) {
+                table.add(value);
+            }
+            return value;
+        }
+        long reference = tag - STRING_REFERENCE;
+        if (table == null || reference >= table.size()) {
+            throw new IOException("Invalid string reference " + reference);
+        }
+        return table.get((int) reference);
+    }
+
+    private static void writeVarint(ObjectOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarint(ObjectInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
@@ -0,0 +1,84 @@
+package com.passwordmanager.common;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+public class PackedEntryListTest {
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        List<PasswordEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            PasswordEntry entry = new PasswordEntry("site" + i + ".com", "shared_user", i % 2 == 0 ? null : "enc" + i);
+            entry.setVersion(1_700_000_000_000_000L + i * 3);
+            entries.add(entry);
+        }
+        entries.add(new PasswordEntry("été.com", null, "pässwörd"));
+
+        PackedEntryList read = roundTrip(new PackedEntryList(entries));
+        assertEquals(entries.size(), read.size());
+        for (int i = 0; i < entries.size(); i++) {
+            PasswordEntry expected = entries.get(i);
+            PasswordEntry actual = read.get(i);
+            assertEquals(expected.getWebsite(), actual.getWebsite());
+            assertEquals(expected.getUsername(), actual.getUsername());
+            assertEquals(expected.getPassword(), actual.getPassword());
+            assertEquals(expected.getVersion(), actual.getVersion());
+        }
+        assertEquals(0, roundTrip(new PackedEntryList()).size());
+    }
+
+    @Test
+    public void testSharedStringsAreWrittenOnce() throws Exception {
+        List<PasswordEntry> shared = new ArrayList<>();
+        List<PasswordEntry> distinct = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            shared.add(new PasswordEntry("site" + i + ".com", "a_rather_long_shared_username", null));
+            distinct.add(new PasswordEntry("site" + i + ".com", "a_rather_long_shared_usernam" + (char) ('a' + i % 26) + i, null));
+        }
+        assertTrue(serialize(new PackedEntryList(shared)).length < serialize(new PackedEntryList(distinct)).length - 2000,
+                "A username shared by many entries should be sent once");
+    }
+
+    @Test
+    public void testStringsLongerThan64KB() throws Exception {
+        StringBuilder note = new StringBuilder();
+        while (note.length() < 100_000) {
+            note.append("é0123456789");
+        }
+        PasswordEntry entry = new PasswordEntry("long.com", "alice", note.toString());
+        List<PasswordEntry> entries = new ArrayList<>();
+        entries.add(entry);
+
+        assertEquals(note.toString(), roundTrip(new PackedEntryList(entries)).get(0).getPassword());
+        PasswordEntry read = (PasswordEntry) deserialize(serialize(entry));
+        assertEquals(note.toString(), read.getPassword());
+        assertEquals("alice", read.getUsername());
+    }
+
+    private static PackedEntryList roundTrip(PackedEntryList list) throws Exception {
+        return (PackedEntryList) deserialize(serialize(list));
+    }
+
+    private static byte[] serialize(Object value) throws Exception {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(buffer)) {
+            out.writeObject(value);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static Object deserialize(byte[] bytes) throws Exception {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readObject();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.passwordmanager.client.gui;
+
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import com.passwordmanager.common.PasswordEntry;
+
+import javafx.geometry.Pos;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableCell;
+import javafx.scene.input.Clipboard;
+import javafx.scene.input.ClipboardContent;
+import javafx.scene.layout.HBox;
+
+/**
+ * Cell of the password column: a fixed-width mask, or the password once revealed, followed by
+ * a button toggling its visibility and a button copying it to the clipboard.
+ * The table reuses a few cells for all its rows while scrolling, so a cell builds its nodes once and
+ * {@link #updateItem} only changes the label's text. Passwords are only fetched when revealed or copied,
+ * and a cell reused for another row shows the mask again.
+ */
+public class PasswordCell extends TableCell<PasswordEntry, String> {
+
+    // Fixed-width mask, so that the table does not leak password lengths
+    static final String PASSWORD_MASK = "••••••••";
+
+    private final BiConsumer<PasswordEntry, Consumer<String>> revealer;
+    private final Label passwordLabel = new Label(PASSWORD_MASK);
+    private final HBox container;
+
+    private boolean passwordVisible = false;
+    private PasswordEntry shownEntry;
+
+    /**
+     * @param revealer Passes the password of an entry to a callback, fetching it first if needed.
+     * @param onCopied Called once a password is copied to the clipboard.
+     */
+    public PasswordCell(BiConsumer<PasswordEntry, Consumer<String>> revealer, Runnable onCopied) {
+        this.revealer = revealer;
+        final Button toggleVisibilityButton = new Button("👁️"); // Eye icon
+        toggleVisibilityButton.getStyleClass().add("password-action-button");
+        toggleVisibilityButton.setOnAction(event -> toggleVisibility());
+        // Action sur le bouton copier
+        final Button copyButton = new Button("📋"); // Copy icon
+        copyButton.getStyleClass().add("password-action-button");
+        copyButton.setOnAction(event -> revealer.accept(shownEntry, password -> {
+            final ClipboardContent content = new ClipboardContent();
+            content.putString(password);
+            Clipboard.getSystemClipboard().setContent(content);
+            onCopied.run();
+        }));
+        container = new HBox(5, passwordLabel, toggleVisibilityButton, copyButton);
+        container.setAlignment(Pos.CENTER_LEFT);
+        container.getStyleClass().add("password-cell");
+    }
+
+    private void toggleVisibility() {
+        if (passwordVisible) {
+            passwordVisible = false;
+            passwordLabel.setText(PASSWORD_MASK);
+            return;
+        }
+        final PasswordEntry entry = shownEntry;
+        revealer.accept(entry, password -> {
+            if (shownEntry == entry) { // The cell may have been reused meanwhile
+                passwordVisible = true;
+                passwordLabel.setText(password);
+            }
+        });
+    }
+
+    @Override
+    protected void updateItem(String password, boolean empty) {
+        super.updateItem(password, empty);
+        // Entries are listed without their password, which is only fetched when revealed
+        final PasswordEntry entry = getTableRow() == null ? null : getTableRow().getItem();
+        if (entry != shownEntry) {
+            shownEntry = entry;
+            if (passwordVisible) {
+                passwordVisible = false; // The cell was reused for another row
+                passwordLabel.setText(PASSWORD_MASK);
+            }
+        }
+        if (empty || entry == null) {
+            setGraphic(null);
+        } else if (getGraphic() != container) {
+            setGraphic(container);
+        }
+    }
+}
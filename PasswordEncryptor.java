@@ -1,5 +1,6 @@
 package com.passwordmanager.common;
 
+import java.security.GeneralSecurityException;
 import java.security.Key;
 import java.util.Base64;
 
@@ -12,29 +13,82 @@ public class PasswordEncryptor {
     // IMPORTANT: In a real application, this key should be securely managed and NOT hardcoded.
     // This is for demonstration purposes only.
     private static final byte[] KEY = "ThisIsASecretKey".getBytes(); // 16-byte key for AES-128
+    private static final Key SECRET_KEY = new SecretKeySpec(KEY, ALGORITHM);
 
-    public static String encrypt(String value) {
+    // Cipher instances are not thread-safe, so each thread keeps one initialized cipher per direction.
+    // After doFinal() a cipher is back in its initialized state and can be reused with the same key.
+    private static final ThreadLocal<Cipher> ENCRYPT_CIPHER = ThreadLocal.withInitial(() -> newCipher(Cipher.ENCRYPT_MODE));
+    private static final ThreadLocal<Cipher> DECRYPT_CIPHER = ThreadLocal.withInitial(() -> newCipher(Cipher.DECRYPT_MODE));
+
+    private static Cipher newCipher(int mode) {
         try {
-            Key key = new SecretKeySpec(KEY, ALGORITHM);
             Cipher cipher = Cipher.getInstance(ALGORITHM);
-            cipher.init(Cipher.ENCRYPT_MODE, key);
-            byte[] encryptedValue = cipher.doFinal(value.getBytes());
-            return Base64.getEncoder().encodeToString(encryptedValue);
+            cipher.init(mode, SECRET_KEY);
+            return cipher;
+        } catch (GeneralSecurityException ex) {
+            throw new RuntimeException("Error while initializing cipher: " + ex.getMessage(), ex);
+        }
+    }
+
+    public static String encrypt(String value) {
+        return Base64.getEncoder().encodeToString(encryptBytes(value.getBytes()));
+    }
+
+    public static String decrypt(String encryptedValue) {
+        return new String(decryptBytes(Base64.getDecoder().decode(encryptedValue)));
+    }
+
+    public static byte[] encryptBytes(byte[] value) {
+        try {
+            return ENCRYPT_CIPHER.get().doFinal(value);
         } catch (Exception ex) {
+            ENCRYPT_CIPHER.remove(); // Start over with a freshly initialized cipher
             throw new RuntimeException("Error while encrypting: " + ex.getMessage(), ex);
         }
     }
 
-    public static String decrypt(String encryptedValue) {
+    public static byte[] decryptBytes(byte[] encryptedValue) {
         try {
-            Key key = new SecretKeySpec(KEY, ALGORITHM);
-            Cipher cipher = Cipher.getInstance(ALGORITHM);
-            cipher.init(Cipher.DECRYPT_MODE, key);
-            byte[] decryptedByteValue = Base64.getDecoder().decode(encryptedValue);
-            byte[] decryptedValue = cipher.doFinal(decryptedByteValue);
-            return new String(decryptedValue);
+            return DECRYPT_CIPHER.get().doFinal(encryptedValue);
+        } catch (Exception ex) {
+            DECRYPT_CIPHER.remove(); // Start over with a freshly initialized cipher
+            throw new RuntimeException("Error while decrypting: " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Encrypts a batch of values with the calling thread's cipher.
+     * @return the ciphertexts, in the same order as the values.
+     */
+    public static byte[][] encryptAll(byte[][] values) {
+        Cipher cipher = ENCRYPT_CIPHER.get();
+        byte[][] encryptedValues = new byte[values.length][];
+        try {
+            for (int i = 0; i < values.length; i++) {
+                encryptedValues[i] = cipher.doFinal(values[i]);
+            }
+        } catch (Exception ex) {
+            ENCRYPT_CIPHER.remove();
+            throw new RuntimeException("Error while encrypting: " + ex.getMessage(), ex);
+        }
+        return encryptedValues;
+    }
+
+    /**
+     * Decrypts a batch of ciphertexts with the calling thread's cipher.
+     * @return the plaintexts, in the same order as the ciphertexts.
+     */
+    public static byte[][] decryptAll(byte[][] encryptedValues) {
+        Cipher cipher = DECRYPT_CIPHER.get();
+        byte[][] values = new byte[encryptedValues.length][];
+        try {
+            for (int i = 0; i < encryptedValues.length; i++) {
+                values[i] = cipher.doFinal(encryptedValues[i]);
+            }
         } catch (Exception ex) {
+            DECRYPT_CIPHER.remove();
             throw new RuntimeException("Error while decrypting: " + ex.getMessage(), ex);
         }
+        return values;
     }
-} 
\ No newline at end of file
+}
@@ -1,15 +1,34 @@
 package com.passwordmanager.common;
 
-import java.io.Serializable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
 
-public class PasswordEntry implements Serializable {
-    private static final long serialVersionUID = 1L;
+/**
+ * A password entry. Over RMI it is written with a compact custom encoding (see writeExternal)
+ * instead of default serialization, which also writes field descriptors.
+ */
+public class PasswordEntry implements Externalizable {
+    private static final long serialVersionUID = 3L;
+
+    // Bits of the presence byte that starts the wire encoding
+    private static final int HAS_WEBSITE = 1;
+    private static final int HAS_USERNAME = 2;
+    private static final int HAS_PASSWORD = 4;
+    private static final int HAS_VERSION = 8;
 
     private String website;
     private String username;
     private String password;
+    // Version of the vault at the entry's last change, see PasswordManagerService#changesSince
+    private long version;
 
-    // Default constructor for JSON serialization/deserialization
+    // Default constructor for JSON serialization/deserialization, also required by Externalizable
     public PasswordEntry() {
     }
 
@@ -43,6 +62,63 @@ public class PasswordEntry implements Serializable {
         this.password = password;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    /**
+     * Writes a presence byte, then only the fields that are set.
+     * Strings are written as a length and their UTF-8 bytes, like in the binary vault format,
+     * since writeUTF cannot write a string of more than 64 KB.
+     */
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        int flags = (website != null ? HAS_WEBSITE : 0) | (username != null ? HAS_USERNAME : 0)
+                | (password != null ? HAS_PASSWORD : 0) | (version != 0 ? HAS_VERSION : 0);
+        out.writeByte(flags);
+        if (website != null) {
+            writeString(out, website);
+        }
+        if (username != null) {
+            writeString(out, username);
+        }
+        if (password != null) {
+            writeString(out, password);
+        }
+        if (version != 0) {
+            out.writeLong(version);
+        }
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        int flags = in.readUnsignedByte();
+        website = (flags & HAS_WEBSITE) != 0 ? readString(in) : null;
+        username = (flags & HAS_USERNAME) != 0 ? readString(in) : null;
+        password = (flags & HAS_PASSWORD) != 0 ? readString(in) : null;
+        version = (flags & HAS_VERSION) != 0 ? in.readLong() : 0;
+    }
+
+    static void writeString(DataOutput out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new StreamCorruptedException("Invalid string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
     @Override
     public String toString() {
         return "PasswordEntry{" +
@@ -9,11 +9,12 @@ public class PasswordHasher {
 
     private static final String ALGORITHM = "SHA-256";
     private static final int SALT_LENGTH = 16;
+    // SecureRandom is thread-safe; seeding a new instance on every call is the expensive part
+    private static final SecureRandom RANDOM = new SecureRandom();
 
     public static String generateSalt() {
-        SecureRandom random = new SecureRandom();
         byte[] salt = new byte[SALT_LENGTH];
-        random.nextBytes(salt);
+        RANDOM.nextBytes(salt);
         return Base64.getEncoder().encodeToString(salt);
     }
 
@@ -18,6 +18,12 @@ public class PasswordManagerApp extends Application {
         primaryStage.show();
     }
 
+    @Override
+    public void stop() {
+        // Change listeners are exported RMI objects, which would keep the JVM running
+        PasswordManagerClient.closeShared();
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
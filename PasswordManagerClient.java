@@ -1,73 +1,411 @@
 package com.passwordmanager.client;
 
+import java.io.IOException;
+import java.rmi.ConnectException;
+import java.rmi.ConnectIOException;
+import java.rmi.NoSuchObjectException;
+import java.rmi.NotBoundException;
+import java.rmi.Remote;
+import java.rmi.RemoteException;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
+import java.rmi.server.UnicastRemoteObject;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
+import com.passwordmanager.common.ChangeSet;
+import com.passwordmanager.common.Mutation;
+import com.passwordmanager.common.MutationResult;
 import com.passwordmanager.common.PasswordEntry;
 import com.passwordmanager.common.PasswordManagerService;
+import com.passwordmanager.common.PasswordPage;
+import com.passwordmanager.common.VaultEvent;
+import com.passwordmanager.common.VaultListener;
 
+/**
+ * Client of the PasswordManagerService. The application shares one instance ({@link #shared()}), which
+ * looks the service up on first use and keeps the stub. A call that could not reach the server looks
+ * the service up again, with a growing delay between attempts, and is retried once; a background check
+ * also replaces the stub when the server was restarted or is unreachable while the client is idle.
+ * Sessions do not survive a server restart, so the user still has to log in again.
+ */
 public class PasswordManagerClient {
 
-    private PasswordManagerService service;
+    private static final String SERVICE_NAME = "PasswordManagerService";
+    // RMI by default; -Dpm.client.transport=binary uses the binary protocol on -Dpm.binary.port instead
+    private static final String TRANSPORT = System.getProperty("pm.client.transport", "rmi");
+    private static final int BINARY_PORT = Integer.getInteger("pm.binary.port", 1100);
+    // Overridable with -Dpm.client.reconnectAttempts and -Dpm.client.healthCheckSeconds
+    private static final int RECONNECT_ATTEMPTS = Integer.getInteger("pm.client.reconnectAttempts", 8);
+    private static final long HEALTH_CHECK_SECONDS = Long.getLong("pm.client.healthCheckSeconds", 30);
+    private static final long INITIAL_BACKOFF_MILLIS = 100;
+    private static final long MAX_BACKOFF_MILLIS = 5000;
+
+    private static PasswordManagerClient shared;
+
+    private final String host;
+    private final int port;
+    private volatile PasswordManagerService service;
+    // Lookup in progress, shared by the calls that need the service meanwhile
+    private final AtomicReference<CompletableFuture<PasswordManagerService>> connecting = new AtomicReference<>();
+    private final ScheduledExecutorService healthCheck;
+    // Listeners exported by subscribe(), unexported by unsubscribe() or close()
+    private final Set<VaultListener> listeners = ConcurrentHashMap.newKeySet();
+
+    private interface Call<T> {
+        T call(PasswordManagerService service) throws RemoteException;
+    }
+
+    private static class EventListener implements VaultListener {
+        private final Consumer<List<VaultEvent>> consumer;
+
+        EventListener(Consumer<List<VaultEvent>> consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void vaultChanged(List<VaultEvent> events) {
+            consumer.accept(events);
+        }
+    }
 
     public PasswordManagerClient() {
+        this("localhost", 1099);
+    }
+
+    public PasswordManagerClient(String host, int port) {
+        this.host = host;
+        this.port = port;
+        healthCheck = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "client-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        healthCheck.scheduleWithFixedDelay(this::checkHealth, HEALTH_CHECK_SECONDS, HEALTH_CHECK_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @return the client shared by the whole application, created on first use.
+     */
+    public static synchronized PasswordManagerClient shared() {
+        if (shared == null) {
+            shared = new PasswordManagerClient();
+        }
+        return shared;
+    }
+
+    /**
+     * Stops the health check and unexports the listeners still subscribed, so that they no longer keep
+     * the JVM alive.
+     */
+    public void close() {
+        healthCheck.shutdownNow();
+        for (VaultListener listener : listeners) {
+            unexport(listener);
+        }
+        PasswordManagerService current = service;
+        if (current != null) {
+            invalidate(current);
+        }
+    }
+
+    /**
+     * Closes the shared client, if it was created.
+     */
+    public static synchronized void closeShared() {
+        if (shared != null) {
+            shared.close();
+        }
+    }
+
+    /**
+     * Looks the service up now, instead of on the first call.
+     */
+    public void connect() throws Exception {
+        service();
+    }
+
+    /**
+     * Returns the stub, looking the service up if needed. A single thread looks it up, sleeping through
+     * the backoff without holding any lock; the other callers wait for its result.
+     */
+    private PasswordManagerService service() throws RemoteException {
+        PasswordManagerService current = service;
+        if (current != null) {
+            return current;
+        }
+        CompletableFuture<PasswordManagerService> lookup = new CompletableFuture<>();
+        CompletableFuture<PasswordManagerService> inFlight = connecting.compareAndExchange(null, lookup);
+        if (inFlight == null) {
+            inFlight = lookup;
+            try {
+                current = service; // Another lookup may have completed meanwhile
+                if (current == null) {
+                    current = lookupWithBackoff();
+                    service = current;
+                }
+                lookup.complete(current);
+            } catch (RemoteException | RuntimeException e) {
+                lookup.completeExceptionally(e);
+            } finally {
+                connecting.set(null);
+            }
+        }
         try {
-            Registry registry = LocateRegistry.getRegistry("localhost", 1099);
-            service = (PasswordManagerService) registry.lookup("PasswordManagerService");
-            System.out.println("Connected to PasswordManagerService.");
-        } catch (Exception e) {
-            System.err.println("Client exception: " + e.toString());
-            e.printStackTrace();
+            return inFlight.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RemoteException ? (RemoteException) e.getCause()
+                    : new ConnectException("Server unavailable: " + e.getCause().getMessage(), (Exception) e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConnectException("Interrupted while connecting to the server");
+        }
+    }
+
+    private PasswordManagerService lookupWithBackoff() throws RemoteException {
+        long backoff = INITIAL_BACKOFF_MILLIS;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                PasswordManagerService found = lookup();
+                System.out.println("Connected to PasswordManagerService (" + TRANSPORT + ").");
+                return found;
+            } catch (IOException | NotBoundException e) {
+                if (attempt >= RECONNECT_ATTEMPTS) {
+                    throw new ConnectException("Server unavailable: " + e.getMessage(), e);
+                }
+                System.err.println("Server unavailable, retrying in " + backoff + " ms: " + e.getMessage());
+            }
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ConnectException("Interrupted while connecting to the server");
+            }
+            backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+        }
+    }
+
+    private PasswordManagerService lookup() throws IOException, NotBoundException {
+        if (TRANSPORT.equals("binary")) {
+            return new BinaryProtocolClient(host, BINARY_PORT);
         }
+        // getRegistry only builds a reference; the lookup is the first network call
+        Registry registry = LocateRegistry.getRegistry(host, port);
+        return (PasswordManagerService) registry.lookup(SERVICE_NAME);
     }
 
-    public boolean login(String username, String password) throws Exception {
-        return service.login(username, password);
+    /**
+     * Forgets a stub that no longer works, unless it was already replaced.
+     */
+    private synchronized void invalidate(PasswordManagerService stale) {
+        if (service == stale) {
+            service = null;
+            if (stale instanceof BinaryProtocolClient) {
+                try {
+                    ((BinaryProtocolClient) stale).close();
+                } catch (IOException e) {
+                    // Already disconnected
+                }
+            }
+        }
+    }
+
+    private <T> T call(Call<T> call) throws RemoteException {
+        PasswordManagerService current = service();
+        try {
+            return call.call(current);
+        } catch (ConnectException | ConnectIOException | NoSuchObjectException e) {
+            // The call did not reach the service, so it is safe to retry it on a new stub
+            System.err.println("Lost connection to the server, reconnecting: " + e.getMessage());
+            invalidate(current);
+            return call.call(service());
+        }
+    }
+
+    private void checkHealth() {
+        PasswordManagerService current = service;
+        if (current == null) {
+            return; // The next call looks the service up
+        }
+        try {
+            if (current instanceof BinaryProtocolClient) {
+                if (!((BinaryProtocolClient) current).isConnected()) {
+                    invalidate(current);
+                }
+                return;
+            }
+            Remote registered = LocateRegistry.getRegistry(host, port).lookup(SERVICE_NAME);
+            if (!registered.equals(current)) {
+                // The server was restarted and exported a new object
+                synchronized (this) {
+                    if (service == current) {
+                        service = (PasswordManagerService) registered;
+                    }
+                }
+                System.out.println("Server restarted, reconnected to PasswordManagerService.");
+            }
+        } catch (IOException | NotBoundException e) {
+            System.err.println("Server health check failed: " + e.getMessage());
+            invalidate(current);
+        }
+    }
+
+    /**
+     * @return the session token to pass to the other calls, or null if the credentials are invalid.
+     */
+    public String login(String username, String password) throws Exception {
+        return call(s -> s.login(username, password));
+    }
+
+    public void logout(String sessionToken) throws Exception {
+        call(s -> {
+            s.logout(sessionToken);
+            return null;
+        });
     }
 
     public boolean register(String username, String password) throws Exception {
-        return service.register(username, password);
+        return call(s -> s.register(username, password));
+    }
+
+    public void addPassword(String sessionToken, PasswordEntry entry) throws Exception {
+        call(s -> {
+            s.addPassword(sessionToken, entry);
+            return null;
+        });
+    }
+
+    public void updatePassword(String sessionToken, PasswordEntry entry) throws Exception {
+        call(s -> {
+            s.updatePassword(sessionToken, entry);
+            return null;
+        });
+    }
+
+    public void deletePassword(String sessionToken, String website) throws Exception {
+        call(s -> {
+            s.deletePassword(sessionToken, website);
+            return null;
+        });
+    }
+
+    /**
+     * Sends several adds, updates and deletes in one call. They are applied all together or not at all.
+     * @return one result per mutation, in the same order.
+     */
+    public List<MutationResult> applyBatch(String sessionToken, List<Mutation> mutations) throws Exception {
+        return call(s -> s.applyBatch(sessionToken, mutations));
+    }
+
+    /**
+     * @param version The version of the previous change set, or 0 to get the whole vault.
+     */
+    public ChangeSet changesSince(String sessionToken, long version) throws Exception {
+        return call(s -> s.changesSince(sessionToken, version));
+    }
+
+    public List<PasswordEntry> listPasswords(String sessionToken) throws Exception {
+        return call(s -> s.listPasswords(sessionToken));
+    }
+
+    public List<PasswordEntry> listPasswordMetadata(String sessionToken) throws Exception {
+        return call(s -> s.listPasswordMetadata(sessionToken));
+    }
+
+    /**
+     * @param cursor The next cursor of the previous page, or null for the first page.
+     * @param pageSize The number of entries wanted, capped by the server.
+     */
+    public PasswordPage listPasswordPage(String sessionToken, String cursor, int pageSize) throws Exception {
+        return call(s -> s.listPasswordPage(sessionToken, cursor, pageSize));
+    }
+
+    /**
+     * @return up to {@code limit} entries matching the query, without their passwords.
+     */
+    public List<PasswordEntry> searchPasswords(String sessionToken, String query, int limit) throws Exception {
+        return call(s -> s.searchPasswords(sessionToken, query, limit));
     }
 
-    public void addPassword(String username, PasswordEntry entry) throws Exception {
-        service.addPassword(username, entry);
+    public String revealPassword(String sessionToken, String website) throws Exception {
+        return call(s -> s.revealPassword(sessionToken, website));
     }
 
-    public void updatePassword(String username, PasswordEntry entry) throws Exception {
-        service.updatePassword(username, entry);
+    /**
+     * Has the changes of the session's vault, made by any client, pushed to a consumer.
+     * The consumer runs on an RMI thread, one batch of events at a time in commit order;
+     * a RESYNC event means that events were dropped and the vault must be reloaded.
+     * Only available over RMI.
+     * @return the handle to pass to {@link #unsubscribe}.
+     */
+    public VaultListener subscribe(String sessionToken, Consumer<List<VaultEvent>> consumer) throws Exception {
+        VaultListener listener = new EventListener(consumer);
+        VaultListener stub = (VaultListener) UnicastRemoteObject.exportObject(listener, 0);
+        listeners.add(listener);
+        try {
+            call(s -> {
+                s.subscribe(sessionToken, stub);
+                return null;
+            });
+        } catch (Exception e) {
+            unexport(listener);
+            throw e;
+        }
+        return listener;
     }
 
-    public void deletePassword(String username, String website) throws Exception {
-        service.deletePassword(username, website);
+    public void unsubscribe(String sessionToken, VaultListener listener) throws Exception {
+        try {
+            call(s -> {
+                s.unsubscribe(sessionToken, (VaultListener) UnicastRemoteObject.toStub(listener));
+                return null;
+            });
+        } finally {
+            unexport(listener);
+        }
     }
 
-    public List<PasswordEntry> listPasswords(String username) throws Exception {
-        return service.listPasswords(username);
+    private void unexport(VaultListener listener) {
+        if (listeners.remove(listener)) {
+            try {
+                UnicastRemoteObject.unexportObject(listener, true);
+            } catch (NoSuchObjectException e) {
+                // Already unexported
+            }
+        }
     }
 
     // Main method for testing the client connection
     public static void main(String[] args) {
         PasswordManagerClient client = new PasswordManagerClient();
-        if (client.service != null) {
-            try {
-                System.out.println("Attempting to authenticate user1 with pass1...");
-                boolean authenticated = client.login("user1", "pass1");
-                System.out.println("Authentication successful: " + authenticated);
-
-                if (authenticated) {
-                    System.out.println("Adding a test password...");
-                    client.addPassword("user1", new PasswordEntry("test.com", "testuser", "testpass"));
+        try {
+            System.out.println("Attempting to authenticate user1 with pass1...");
+            String sessionToken = client.login("user1", "pass1");
+            System.out.println("Authentication successful: " + (sessionToken != null));
 
-                    System.out.println("Listing passwords...");
-                    List<PasswordEntry> entries = client.listPasswords("user1");
-                    entries.forEach(entry -> System.out.println("- " + entry));
-                }
+            if (sessionToken != null) {
+                System.out.println("Adding a test password...");
+                client.addPassword(sessionToken, new PasswordEntry("test.com", "testuser", "testpass"));
 
-            } catch (Exception e) {
-                System.err.println("Client operation failed: " + e.getMessage());
-                e.printStackTrace();
+                System.out.println("Listing passwords...");
+                List<PasswordEntry> entries = client.listPasswords(sessionToken);
+                entries.forEach(entry -> System.out.println("- " + entry));
+                client.logout(sessionToken);
             }
+
+        } catch (Exception e) {
+            System.err.println("Client operation failed: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            client.close();
         }
     }
 } 
\ No newline at end of file
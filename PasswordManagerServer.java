@@ -3,9 +3,14 @@ package com.passwordmanager.server;
 import java.rmi.Naming;
 import java.rmi.registry.LocateRegistry;
 
-import com.passwordmanager.common.PasswordManagerService;
-
 public class PasswordManagerServer {
+
+    // Opt-in binary protocol endpoint, enabled with -Dpm.binary.port; -Dpm.binary.workers sizes its worker pool
+    private static final Integer BINARY_PORT = Integer.getInteger("pm.binary.port");
+    private static final int BINARY_WORKERS = Integer.getInteger("pm.binary.workers", 4 * Runtime.getRuntime().availableProcessors());
+    // Opt-in HTTP/JSON endpoint, enabled with -Dpm.http.port
+    private static final Integer HTTP_PORT = Integer.getInteger("pm.http.port");
+
     public static void main(String[] args) {
         try {
             // Create the RMI registry on port 1099
@@ -13,15 +18,35 @@ public class PasswordManagerServer {
             System.out.println("RMI Registry created on port 1099");
 
             // Create an instance of the service implementation
-            PasswordManagerService service = new PasswordManagerServiceImpl();
+            PasswordManagerServiceImpl service = new PasswordManagerServiceImpl();
 
             // Bind the service implementation to the RMI registry
             Naming.rebind("rmi://localhost:1099/PasswordManagerService", service);
             System.out.println("PasswordManagerService bound in registry.");
+
+            BinaryProtocolServer binaryServer = null;
+            if (BINARY_PORT != null) {
+                binaryServer = new BinaryProtocolServer(service, BINARY_PORT, BINARY_WORKERS);
+                binaryServer.start();
+                System.out.println("Binary protocol listening on port " + BINARY_PORT);
+            }
+            HttpJsonServer httpServer = null;
+            if (HTTP_PORT != null) {
+                httpServer = new HttpJsonServer(service, HTTP_PORT);
+                httpServer.start();
+                System.out.println("HTTP/JSON API listening on port " + HTTP_PORT);
+            }
             System.out.println("Server is ready. Press Enter to stop.");
 
             // Keep the server running until a key is pressed
             System.in.read();
+            if (binaryServer != null) {
+                binaryServer.close();
+            }
+            if (httpServer != null) {
+                httpServer.close();
+            }
+            service.shutdown(); // Flush pending log records before exiting
 
         } catch (Exception e) {
             System.err.println("Server exception: " + e.toString());
@@ -5,10 +5,27 @@ import java.rmi.RemoteException;
 import java.util.List;
 
 public interface PasswordManagerService extends Remote {
-    boolean login(String username, String password) throws RemoteException;
+    // Returns an opaque session token, or null if the credentials are invalid
+    String login(String username, String password) throws RemoteException;
     boolean register(String username, String password) throws RemoteException;
-    void addPassword(String username, PasswordEntry entry) throws RemoteException;
-    List<PasswordEntry> listPasswords(String username) throws RemoteException;
-    void updatePassword(String username, PasswordEntry entry) throws RemoteException;
-    void deletePassword(String username, String website) throws RemoteException;
+    void logout(String sessionToken) throws RemoteException;
+    // The data methods act on the vault of the session's user
+    void addPassword(String sessionToken, PasswordEntry entry) throws RemoteException;
+    List<PasswordEntry> listPasswords(String sessionToken) throws RemoteException;
+    // Entries with website and username only; passwords are fetched one at a time with revealPassword
+    List<PasswordEntry> listPasswordMetadata(String sessionToken) throws RemoteException;
+    // Entries without passwords sorted by website, one page at a time; cursor is null for the first page
+    PasswordPage listPasswordPage(String sessionToken, String cursor, int pageSize) throws RemoteException;
+    // Entries without passwords whose website or username starts with or contains the query, ignoring case
+    List<PasswordEntry> searchPasswords(String sessionToken, String query, int limit) throws RemoteException;
+    String revealPassword(String sessionToken, String website) throws RemoteException;
+    void updatePassword(String sessionToken, PasswordEntry entry) throws RemoteException;
+    void deletePassword(String sessionToken, String website) throws RemoteException;
+    // Applies all the mutations under a single commit, or none of them if one fails; results are in mutation order
+    List<MutationResult> applyBatch(String sessionToken, List<Mutation> mutations) throws RemoteException;
+    // Entries changed and websites deleted after a vault version returned by a previous call (0 for everything)
+    ChangeSet changesSince(String sessionToken, long version) throws RemoteException;
+    // Pushes the changes of the session's vault to the listener until unsubscribed or the session ends
+    void subscribe(String sessionToken, VaultListener listener) throws RemoteException;
+    void unsubscribe(String sessionToken, VaultListener listener) throws RemoteException;
 } 
\ No newline at end of file
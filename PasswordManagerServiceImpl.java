@@ -2,95 +2,456 @@ package com.passwordmanager.server;
 
 import java.rmi.RemoteException;
 import java.rmi.server.UnicastRemoteObject;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import com.passwordmanager.common.PasswordEncryptor;
+import com.passwordmanager.common.ChangeSet;
+import com.passwordmanager.common.CompressingSocketFactory;
+import com.passwordmanager.common.EntryNotFoundException;
+import com.passwordmanager.common.Mutation;
+import com.passwordmanager.common.MutationResult;
+import com.passwordmanager.common.PackedEntryList;
 import com.passwordmanager.common.PasswordEntry;
 import com.passwordmanager.common.PasswordHasher;
 import com.passwordmanager.common.PasswordManagerService;
+import com.passwordmanager.common.PasswordPage;
+import com.passwordmanager.common.VaultEvent;
+import com.passwordmanager.common.VaultListener;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.core.type.TypeReference;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 
 public class PasswordManagerServiceImpl extends UnicastRemoteObject implements PasswordManagerService {
 
     private static final long serialVersionUID = 1L;
+    // Files of older versions: users.json is converted on first start, passwords.json is read lazily until compacted away
     private static final String USERS_FILE = "users.json";
     private static final String PASSWORDS_FILE = "passwords.json";
+    private static final String VAULTS_DIR = "vaults";
+    private static final String LOG_FILE = "vault.wal";
+    // Load every vault shard in parallel at startup instead of on first access, with -Dpm.shards.preload=true
+    private static final boolean PRELOAD_SHARDS = Boolean.getBoolean("pm.shards.preload");
+    // Compaction thresholds, overridable with -Dpm.compaction.maxLogBytes / -Dpm.compaction.intervalSeconds
+    private static final long COMPACTION_MAX_LOG_BYTES = Long.getLong("pm.compaction.maxLogBytes", 1024 * 1024);
+    private static final long COMPACTION_INTERVAL_SECONDS = Long.getLong("pm.compaction.intervalSeconds", 300);
+    // Durability of acknowledged mutations (sync, group or async), overridable with -Dpm.durability
+    private static final DurabilityMode DURABILITY_MODE = DurabilityMode.fromProperty(System.getProperty("pm.durability"));
+    private static final long GROUP_COMMIT_WINDOW_MILLIS = Long.getLong("pm.groupCommit.windowMillis", 2);
+    // Vault size from which listPasswords decrypts in parallel, set with -Dpm.list.parallelThreshold.
+    // Decryption stays sequential by default until DecryptionCrossoverBenchmark has measured a crossover on a
+    // multi-core host; on a single core the parallel path never paid off
+    private static final int PARALLEL_DECRYPT_THRESHOLD = Integer.getInteger("pm.list.parallelThreshold", Integer.MAX_VALUE);
+    // Password hashing pool size and queue limit, overridable with -Dpm.hashing.threads / -Dpm.hashing.queue
+    private static final int HASHING_THREADS = Integer.getInteger("pm.hashing.threads", Runtime.getRuntime().availableProcessors());
+    private static final int HASHING_QUEUE = Integer.getInteger("pm.hashing.queue", 256);
+    // Sessions expire after this many idle seconds, overridable with -Dpm.session.idleTimeoutSeconds
+    private static final long SESSION_IDLE_TIMEOUT_SECONDS = Long.getLong("pm.session.idleTimeoutSeconds", 1800);
+    // Websites whose latest change is tracked per vault for changesSince, overridable with -Dpm.sync.maxTrackedChanges
+    private static final int MAX_TRACKED_CHANGES = Integer.getInteger("pm.sync.maxTrackedChanges", 10000);
+    // Largest page returned by listPasswordPage, overridable with -Dpm.list.maxPageSize
+    private static final int MAX_PAGE_SIZE = Integer.getInteger("pm.list.maxPageSize", 500);
+    // Change events queued per subscriber before it is told to resynchronize, and threads delivering them,
+    // overridable with -Dpm.push.queueSize and -Dpm.push.threads
+    private static final int PUSH_QUEUE_SIZE = Integer.getInteger("pm.push.queueSize", 1024);
+    private static final int PUSH_THREADS = Integer.getInteger("pm.push.threads", 2);
+    // Deflate the RMI connections to this service with -Dpm.rmi.compress=true; null keeps the default sockets
+    private static final CompressingSocketFactory RMI_SOCKET_FACTORY =
+            Boolean.getBoolean("pm.rmi.compress") ? new CompressingSocketFactory() : null;
 
     private final ObjectMapper objectMapper = new ObjectMapper();
+    // Compact (non indented) mapper for log records, one per line
+    private final ObjectMapper logMapper = new ObjectMapper();
+    private final File logFile;
+    private final VaultSnapshot snapshot;
+    private final WriteAheadLog writeAheadLog;
+    private final GroupCommitFlusher flusher;
+    private final LogCompactor compactor;
+    private final HashingExecutor hashingExecutor = new HashingExecutor(HASHING_THREADS, HASHING_QUEUE);
+    private final SessionManager sessions = new SessionManager(SESSION_IDLE_TIMEOUT_SECONDS);
+    private final VaultEventPublisher publisher = new VaultEventPublisher(PUSH_QUEUE_SIZE, PUSH_THREADS, sessions::isOpen);
 
     // Stores hashed passwords and salts: Map<username, [hashedPassword, salt]>
     private final Map<String, String[]> userCredentials = new ConcurrentHashMap<>();
-    // Stores password entries for each user: Map<username, Map<website, PasswordEntry>>
+    // Password entries of the users whose vault has been loaded: Map<username, Map<website, PasswordEntry>>
+    // Vaults are read from their shard on first access, see loadVault()
     private final Map<String, Map<String, PasswordEntry>> userPasswords = new ConcurrentHashMap<>();
+    // Change tracking of the vaults changed or synchronized during this run, see changesSince()
+    private final Map<String, VaultChanges> userChanges = new ConcurrentHashMap<>();
+    // Versions of this run start at its start time in microseconds, above any version handed out by an earlier run
+    private final long versionEpoch = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+    // Search indexes of the vaults searched during this run, built on first search, see searchPasswords()
+    private final Map<String, SearchIndex> userIndexes = new ConcurrentHashMap<>();
+    // Sorted websites of the vaults paged through during this run, built on first page, see listPasswordPage()
+    private final Map<String, NavigableSet<String>> userSortedWebsites = new ConcurrentHashMap<>();
 
     public PasswordManagerServiceImpl() throws RemoteException {
-        super();
+        this(new File("."));
+    }
+
+    /**
+     * Creates the service on the data files of the given directory.
+     */
+    PasswordManagerServiceImpl(File dataDir) throws RemoteException {
+        super(0, RMI_SOCKET_FACTORY, RMI_SOCKET_FACTORY);
         objectMapper.enable(SerializationFeature.INDENT_OUTPUT); // Pretty print JSON
+        logFile = new File(dataDir, LOG_FILE);
+        snapshot = new VaultSnapshot(new File(dataDir, USERS_FILE), new File(dataDir, PASSWORDS_FILE),
+                new File(dataDir, VAULTS_DIR), objectMapper);
         loadData();
+        try {
+            writeAheadLog = new WriteAheadLog(logFile, logMapper);
+        } catch (IOException e) {
+            throw new RemoteException("Unable to open write-ahead log " + LOG_FILE, e);
+        }
+        flusher = new GroupCommitFlusher(writeAheadLog, DURABILITY_MODE, GROUP_COMMIT_WINDOW_MILLIS);
+        System.out.println("Write-ahead log durability mode: " + DURABILITY_MODE);
 
         // Add example users and passwords ONLY if no data was loaded
         if (userCredentials.isEmpty()) {
             String salt1 = PasswordHasher.generateSalt();
             String hashedPassword1 = PasswordHasher.hashPassword("password123", salt1);
-            userCredentials.put("user1", new String[]{hashedPassword1, salt1});
-            userPasswords.put("user1", new ConcurrentHashMap<>());
+            commit(LogRecord.register("user1", new String[]{hashedPassword1, salt1}));
 
             String salt2 = PasswordHasher.generateSalt();
             String hashedPassword2 = PasswordHasher.hashPassword("adminpass", salt2);
-            userCredentials.put("admin", new String[]{hashedPassword2, salt2});
-            userPasswords.put("admin", new ConcurrentHashMap<>());
+            commit(LogRecord.register("admin", new String[]{hashedPassword2, salt2}));
 
             String encryptedGooglePass = PasswordEncryptor.encrypt("googlepass");
-            userPasswords.get("user1").put("google.com", new PasswordEntry("google.com", "user1_google", encryptedGooglePass));
+            commit(LogRecord.put("user1", new PasswordEntry("google.com", "user1_google", encryptedGooglePass)));
             String encryptedFbPass = PasswordEncryptor.encrypt("fbpass");
-            userPasswords.get("user1").put("facebook.com", new PasswordEntry("facebook.com", "user1_fb", encryptedFbPass));
-
-            saveData(); // Save initial data
+            commit(LogRecord.put("user1", new PasswordEntry("facebook.com", "user1_fb", encryptedFbPass)));
         }
+
+        compactor = new LogCompactor(writeAheadLog, logFile, snapshot, logMapper,
+                COMPACTION_MAX_LOG_BYTES, COMPACTION_INTERVAL_SECONDS);
+        compactor.start();
+        sessions.start();
     }
 
-    private void loadData() {
-        File usersFile = new File(USERS_FILE);
-        File passwordsFile = new File(PASSWORDS_FILE);
+    private void loadData() throws RemoteException {
+        try {
+            snapshot.open();
+            if (snapshot.exists()) {
+                snapshot.readCredentials(userCredentials);
+                System.out.println("Data loaded: " + userCredentials.size() + " users, " + snapshot.vaultUsers().size() + " vaults indexed.");
+            } else {
+                System.out.println("No existing data files found. Starting with empty or example data.");
+            }
+            if (PRELOAD_SHARDS) {
+                snapshot.vaultUsers().parallelStream().forEach(this::loadVault);
+                System.out.println("Preloaded " + userPasswords.size() + " vault shards.");
+            }
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Error loading data: " + e.getMessage());
+            e.printStackTrace();
+        }
 
-        if (usersFile.exists() && passwordsFile.exists()) {
+        // Replay the mutations logged since the snapshot was written: sealed segments first, then the active log.
+        // Vaults touched by the log are loaded from their shard before the records are applied.
+        List<File> logFiles = WriteAheadLog.sealedSegments(logFile);
+        logFiles.add(logFile);
+        for (File file : logFiles) {
             try {
-                // Load user credentials
-                Map<String, String[]> loadedCredentials = objectMapper.readValue(usersFile,
-                        new TypeReference<Map<String, String[]>>() {});
-                userCredentials.putAll(loadedCredentials);
-
-                // Load password entries
-                Map<String, Map<String, PasswordEntry>> loadedPasswords = objectMapper.readValue(passwordsFile,
-                        new TypeReference<Map<String, Map<String, PasswordEntry>>>() {});
-                userPasswords.putAll(loadedPasswords);
-
-                System.out.println("Data loaded from JSON files.");
-            } catch (IOException e) {
-                System.err.println("Error loading data from JSON files: " + e.getMessage());
+                int replayed = WriteAheadLog.replay(file, logMapper,
+                        record -> record.applyTo(userCredentials, this::loadVault));
+                if (replayed > 0) {
+                    System.out.println("Replayed " + replayed + " records from " + file.getName() + ".");
+                }
+            } catch (WriteAheadLog.CorruptLogException e) {
+                // Starting without the records after the corrupt one would lose acknowledged changes
+                throw new RemoteException(e.getMessage() + "; move the file aside after inspecting it to start without it", e);
+            } catch (IOException | UncheckedIOException e) {
+                System.err.println("Error replaying write-ahead log " + file.getName() + ": " + e.getMessage());
                 e.printStackTrace();
             }
-        } else {
-            System.out.println("No existing data files found. Starting with empty or example data.");
         }
     }
 
-    private void saveData() {
+    /**
+     * Returns the in-memory vault of a user, reading it from its shard on first access.
+     * @return an empty vault if the user has no shard yet.
+     */
+    private Map<String, PasswordEntry> loadVault(String username) {
+        Map<String, PasswordEntry> vault = userPasswords.get(username);
+        if (vault != null) {
+            return vault;
+        }
         try {
-            objectMapper.writeValue(new File(USERS_FILE), userCredentials);
-            objectMapper.writeValue(new File(PASSWORDS_FILE), userPasswords);
-            System.out.println("Data saved to JSON files.");
+            Map<String, PasswordEntry> loaded = snapshot.readVault(username);
+            Map<String, PasswordEntry> existing = userPasswords.putIfAbsent(username, loaded);
+            return existing != null ? existing : loaded;
         } catch (IOException e) {
-            System.err.println("Error saving data to JSON files: " + e.getMessage());
-            e.printStackTrace();
+            throw new UncheckedIOException("Unable to read vault shard of " + username, e);
+        }
+    }
+
+    /**
+     * Returns the vault of a user, or null if the user has neither a loaded vault nor a shard.
+     */
+    private Map<String, PasswordEntry> vaultOf(String username) throws RemoteException {
+        if (!userPasswords.containsKey(username) && !snapshot.hasVault(username)) {
+            return null;
+        }
+        try {
+            return loadVault(username);
+        } catch (UncheckedIOException e) {
+            System.err.println(e.getMessage() + ": " + e.getCause().getMessage());
+            throw new RemoteException(e.getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Returns the vault of a session's user, or null if the user has no vault yet.
+     * The vault is cached on the session once found.
+     */
+    private Map<String, PasswordEntry> vaultOf(SessionManager.Session session) throws RemoteException {
+        Map<String, PasswordEntry> vault = session.vault;
+        if (vault == null) {
+            vault = vaultOf(session.username);
+            session.vault = vault;
+        }
+        return vault;
+    }
+
+    /**
+     * Returns the vault of a session's user, creating an empty one if the user has none yet.
+     */
+    private Map<String, PasswordEntry> vaultOrCreate(SessionManager.Session session) throws RemoteException {
+        Map<String, PasswordEntry> vault = vaultOf(session);
+        if (vault == null) {
+            vault = userPasswords.computeIfAbsent(session.username, k -> new ConcurrentHashMap<>());
+            session.vault = vault;
+        }
+        return vault;
+    }
+
+    private VaultChanges changesOf(String username) {
+        return userChanges.computeIfAbsent(username, k -> new VaultChanges(versionEpoch, MAX_TRACKED_CHANGES));
+    }
+
+    /**
+     * Returns a copy of an entry without its password.
+     */
+    private static PasswordEntry metadataOf(PasswordEntry entry) {
+        PasswordEntry metadata = new PasswordEntry(entry.getWebsite(), entry.getUsername(), null);
+        metadata.setVersion(entry.getVersion());
+        return metadata;
+    }
+
+    /**
+     * Tells why an entry could not be stored and read back: a website, a username and a password are required.
+     * addPassword, updatePassword and applyBatch all reject entries through it.
+     * @return the error message, or null if the entry is valid.
+     */
+    private static String entryError(PasswordEntry entry) {
+        if (entry == null || entry.getWebsite() == null || entry.getUsername() == null || entry.getPassword() == null) {
+            return "Invalid entry: a website, a username and a password are required.";
+        }
+        return null;
+    }
+
+    private static void checkEntry(PasswordEntry entry) throws RemoteException {
+        String error = entryError(entry);
+        if (error != null) {
+            throw new RemoteException(error);
+        }
+    }
+
+    /**
+     * Stops the background persistence stages, flushing any queued log records.
+     */
+    public void shutdown() {
+        compactor.stop();
+        flusher.close();
+        try {
+            writeAheadLog.close();
+        } catch (IOException e) {
+            System.err.println("Error closing write-ahead log: " + e.getMessage());
+        }
+        hashingExecutor.shutdown();
+        sessions.stop();
+        publisher.shutdown();
+    }
+
+    /**
+     * Hands a mutation to the write-ahead log and, once it is durable, applies it to the in-memory maps,
+     * the search index and the subscribers, so that a change that could not be logged is never seen.
+     * A record that could not be applied is rejected before it is handed over, whatever the durability mode:
+     * once logged, it would fail every replay, and in ASYNC mode it would even be acknowledged first.
+     * Callers mutating an existing vault hold its monitor so that log order matches map order; in GROUP
+     * mode they keep it until the group commit completes, so the changes of one vault are committed one
+     * after the other while those of different vaults still share the same fsync.
+     */
+    private void commit(LogRecord record) throws RemoteException {
+        try {
+            record.check();
+        } catch (IllegalArgumentException e) {
+            throw new RemoteException("Invalid change: " + e.getMessage());
+        }
+        awaitDurable(flusher.submit(record));
+        List<VaultEvent> events = null;
+        if (publisher.hasSubscribers(record.getUser())) {
+            // Whether a put adds or updates an entry is only known before it is applied
+            events = new ArrayList<>();
+            addEvents(events, record, userPasswords.get(record.getUser()), new HashSet<>());
+        }
+        record.applyTo(userCredentials, userPasswords);
+        SearchIndex index = userIndexes.get(record.getUser());
+        if (index != null) {
+            updateSearchIndex(index, record);
+        }
+        NavigableSet<String> sortedWebsites = userSortedWebsites.get(record.getUser());
+        if (sortedWebsites != null) {
+            updateSortedWebsites(sortedWebsites, record);
+        }
+        if (events != null) {
+            publisher.publish(record.getUser(), events);
+        }
+    }
+
+    /**
+     * Describes a record as change events, without passwords.
+     * @param present Websites added or deleted by the preceding records of the same batch, whose presence
+     * in the vault is the opposite of what the vault says.
+     */
+    private static void addEvents(List<VaultEvent> events, LogRecord record, Map<String, PasswordEntry> vault,
+                                  Set<String> present) {
+        switch (record.getOp()) {
+            case PUT: {
+                String website = record.getEntry().getWebsite();
+                boolean exists = (vault != null && vault.containsKey(website)) != present.contains(website);
+                events.add(exists ? VaultEvent.updated(metadataOf(record.getEntry()))
+                        : VaultEvent.added(metadataOf(record.getEntry())));
+                if (!exists) {
+                    toggle(present, website);
+                }
+                break;
+            }
+            case DELETE: {
+                String website = record.getWebsite();
+                events.add(VaultEvent.deleted(website));
+                if ((vault != null && vault.containsKey(website)) != present.contains(website)) {
+                    toggle(present, website);
+                }
+                break;
+            }
+            case BATCH:
+                for (LogRecord batched : record.getRecords()) {
+                    addEvents(events, batched, vault, present);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static void toggle(Set<String> websites, String website) {
+        if (!websites.remove(website)) {
+            websites.add(website);
+        }
+    }
+
+    private static void updateSearchIndex(SearchIndex index, LogRecord record) {
+        switch (record.getOp()) {
+            case PUT:
+                index.put(record.getEntry());
+                break;
+            case DELETE:
+                index.remove(record.getWebsite());
+                break;
+            case BATCH:
+                for (LogRecord batched : record.getRecords()) {
+                    updateSearchIndex(index, batched);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static void updateSortedWebsites(NavigableSet<String> websites, LogRecord record) {
+        switch (record.getOp()) {
+            case PUT:
+                websites.add(record.getEntry().getWebsite());
+                break;
+            case DELETE:
+                websites.remove(record.getWebsite());
+                break;
+            case BATCH:
+                for (LogRecord batched : record.getRecords()) {
+                    updateSortedWebsites(websites, batched);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Returns the websites of a vault in order, building the set on first use.
+     * Like the search index, it is built under the vault's monitor and then kept up to date by commit().
+     */
+    private NavigableSet<String> sortedWebsitesOf(String username, Map<String, PasswordEntry> vault) {
+        NavigableSet<String> websites = userSortedWebsites.get(username);
+        if (websites == null) {
+            synchronized (vault) {
+                websites = userSortedWebsites.get(username);
+                if (websites == null) {
+                    websites = new ConcurrentSkipListSet<>(vault.keySet());
+                    userSortedWebsites.put(username, websites);
+                }
+            }
+        }
+        return websites;
+    }
+
+    /**
+     * Returns the search index of a vault, building it on first use.
+     * It is built under the vault's monitor, like mutations, so no change is missed in between.
+     */
+    private SearchIndex searchIndexOf(String username, Map<String, PasswordEntry> vault) {
+        SearchIndex index = userIndexes.get(username);
+        if (index == null) {
+            synchronized (vault) {
+                index = userIndexes.get(username);
+                if (index == null) {
+                    index = new SearchIndex();
+                    for (PasswordEntry entry : vault.values()) {
+                        index.put(entry);
+                    }
+                    userIndexes.put(username, index);
+                }
+            }
+        }
+        return index;
+    }
+
+    private void awaitDurable(CompletableFuture<Void> durable) throws RemoteException {
+        try {
+            durable.get();
+        } catch (ExecutionException e) {
+            System.err.println("Error appending to write-ahead log: " + e.getCause().getMessage());
+            throw new RemoteException("Failed to persist change", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RemoteException("Interrupted while persisting change", e);
         }
     }
 
@@ -98,73 +459,313 @@ public class PasswordManagerServiceImpl extends UnicastRemoteObject implements P
     public boolean register(String username, String password) throws RemoteException {
         if (userCredentials.containsKey(username)) {
             System.out.println("Registration failed: User " + username + " already exists.");
-            return false; // User already exists
-        } else {
+            return false; // User already exists, no need to hash
+        }
+        String[] credentials = hashingExecutor.call(() -> {
             String salt = PasswordHasher.generateSalt();
-            String hashedPassword = PasswordHasher.hashPassword(password, salt);
-            userCredentials.put(username, new String[]{hashedPassword, salt});
-            userPasswords.put(username, new ConcurrentHashMap<>());
-            saveData(); // Save data after registration
-            System.out.println("User " + username + " registered successfully.");
-            return true;
+            return new String[]{PasswordHasher.hashPassword(password, salt), salt};
+        });
+        if (userCredentials.putIfAbsent(username, credentials) != null) {
+            System.out.println("Registration failed: User " + username + " already exists.");
+            return false; // User already exists
+        }
+        try {
+            commit(LogRecord.register(username, credentials));
+        } catch (RemoteException e) {
+            userCredentials.remove(username, credentials); // Release the reserved name
+            throw e;
         }
+        System.out.println("User " + username + " registered successfully.");
+        return true;
     }
 
     @Override
-    public boolean login(String username, String password) throws RemoteException {
+    public String login(String username, String password) throws RemoteException {
         String[] storedCreds = userCredentials.get(username);
         if (storedCreds != null) {
             String storedHash = storedCreds[0];
             String storedSalt = storedCreds[1];
-            if (PasswordHasher.verifyPassword(password, storedHash, storedSalt)) {
+            if (hashingExecutor.call(() -> PasswordHasher.verifyPassword(password, storedHash, storedSalt))) {
                 System.out.println("Login successful for user: " + username);
-                return true;
+                return sessions.open(username);
             }
         }
         System.out.println("Login failed for user: " + username + ". Invalid credentials.");
-        return false;
+        return null;
     }
 
     @Override
-    public void addPassword(String username, PasswordEntry entry) throws RemoteException {
+    public void logout(String sessionToken) throws RemoteException {
+        publisher.unsubscribeSession(sessionToken);
+        sessions.close(sessionToken);
+    }
+
+    @Override
+    public void addPassword(String sessionToken, PasswordEntry entry) throws RemoteException {
+        SessionManager.Session session = sessions.resolve(sessionToken);
+        String username = session.username;
+        checkEntry(entry);
         // Encrypt the password before storing
         String encryptedPassword = PasswordEncryptor.encrypt(entry.getPassword());
         PasswordEntry encryptedEntry = new PasswordEntry(entry.getWebsite(), entry.getUsername(), encryptedPassword);
-        userPasswords.computeIfAbsent(username, k -> new ConcurrentHashMap<>()).put(encryptedEntry.getWebsite(), encryptedEntry);
-        saveData(); // Save data after adding password
+        Map<String, PasswordEntry> vault = vaultOrCreate(session);
+        synchronized (vault) {
+            encryptedEntry.setVersion(changesOf(username).record(encryptedEntry.getWebsite()));
+            commit(LogRecord.put(username, encryptedEntry));
+        }
         System.out.println("Password added for " + username + ": " + encryptedEntry.getWebsite());
     }
 
     @Override
-    public void updatePassword(String username, PasswordEntry entry) throws RemoteException {
-        if (userPasswords.containsKey(username) && userPasswords.get(username).containsKey(entry.getWebsite())) {
-            // Encrypt the password before updating
-            String encryptedPassword = PasswordEncryptor.encrypt(entry.getPassword());
-            PasswordEntry encryptedEntry = new PasswordEntry(entry.getWebsite(), entry.getUsername(), encryptedPassword);
-            userPasswords.get(username).put(encryptedEntry.getWebsite(), encryptedEntry);
-            saveData(); // Save data after updating password
-            System.out.println("Password updated for " + username + ": " + encryptedEntry.getWebsite());
-        } else {
-            throw new RemoteException("Password entry not found for update.");
+    public void updatePassword(String sessionToken, PasswordEntry entry) throws RemoteException {
+        SessionManager.Session session = sessions.resolve(sessionToken);
+        String username = session.username;
+        checkEntry(entry);
+        Map<String, PasswordEntry> vault = vaultOf(session);
+        if (vault == null) {
+            throw new EntryNotFoundException("Password entry not found for update.");
+        }
+        // Encrypt the password before updating
+        String encryptedPassword = PasswordEncryptor.encrypt(entry.getPassword());
+        PasswordEntry encryptedEntry = new PasswordEntry(entry.getWebsite(), entry.getUsername(), encryptedPassword);
+        synchronized (vault) {
+            if (!vault.containsKey(entry.getWebsite())) {
+                throw new EntryNotFoundException("Password entry not found for update.");
+            }
+            encryptedEntry.setVersion(changesOf(username).record(encryptedEntry.getWebsite()));
+            commit(LogRecord.put(username, encryptedEntry));
         }
+        System.out.println("Password updated for " + username + ": " + encryptedEntry.getWebsite());
     }
 
     @Override
-    public void deletePassword(String username, String website) throws RemoteException {
-        if (userPasswords.containsKey(username) && userPasswords.get(username).containsKey(website)) {
-            userPasswords.get(username).remove(website);
-            saveData(); // Save data after deleting password
-            System.out.println("Password deleted for " + username + ": " + website);
-        } else {
-            throw new RemoteException("Password entry not found for deletion.");
+    public void deletePassword(String sessionToken, String website) throws RemoteException {
+        SessionManager.Session session = sessions.resolve(sessionToken);
+        String username = session.username;
+        Map<String, PasswordEntry> vault = vaultOf(session);
+        if (vault == null) {
+            throw new EntryNotFoundException("Password entry not found for deletion.");
         }
+        synchronized (vault) {
+            if (!vault.containsKey(website)) {
+                throw new EntryNotFoundException("Password entry not found for deletion.");
+            }
+            changesOf(username).record(website);
+            commit(LogRecord.delete(username, website));
+        }
+        System.out.println("Password deleted for " + username + ": " + website);
     }
 
     @Override
-    public List<PasswordEntry> listPasswords(String username) throws RemoteException {
+    public List<MutationResult> applyBatch(String sessionToken, List<Mutation> mutations) throws RemoteException {
+        SessionManager.Session session = sessions.resolve(sessionToken);
+        String username = session.username;
+        // Encrypt the passwords before taking the vault lock, in one pass over the thread's cipher
+        List<PasswordEntry> entries = new ArrayList<>(mutations.size());
+        List<byte[]> passwords = new ArrayList<>(mutations.size());
+        for (Mutation mutation : mutations) {
+            PasswordEntry entry = mutation == null ? null : mutation.getEntry();
+            boolean valid = entryError(entry) == null;
+            entries.add(valid ? entry : null);
+            if (valid) {
+                passwords.add(entry.getPassword().getBytes());
+            }
+        }
+        byte[][] encryptedPasswords = PasswordEncryptor.encryptAll(passwords.toArray(new byte[0][]));
+        List<PasswordEntry> encryptedEntries = new ArrayList<>(mutations.size());
+        int next = 0;
+        for (PasswordEntry entry : entries) {
+            encryptedEntries.add(entry == null ? null : new PasswordEntry(entry.getWebsite(), entry.getUsername(),
+                    Base64.getEncoder().encodeToString(encryptedPasswords[next++])));
+        }
+        Map<String, PasswordEntry> vault = vaultOrCreate(session);
+
+        List<MutationResult> results = new ArrayList<>(mutations.size());
+        List<LogRecord> records = new ArrayList<>(mutations.size());
+        boolean failed = false;
+        synchronized (vault) {
+            // Websites added or deleted by earlier mutations of the batch, so that later ones see them
+            Map<String, Boolean> pending = new HashMap<>();
+            for (int i = 0; i < mutations.size(); i++) {
+                Mutation mutation = mutations.get(i);
+                PasswordEntry encryptedEntry = encryptedEntries.get(i);
+                String error = null;
+                if (mutation == null || mutation.getType() == null) {
+                    error = "Invalid mutation.";
+                } else if (mutation.getType() == Mutation.Type.DELETE) {
+                    String website = mutation.getWebsite();
+                    if (website == null || !pending.getOrDefault(website, vault.containsKey(website))) {
+                        error = "Password entry not found for deletion.";
+                    } else {
+                        records.add(LogRecord.delete(username, website));
+                        pending.put(website, false);
+                    }
+                } else if (encryptedEntry == null) {
+                    error = entryError(mutation.getEntry());
+                } else if (mutation.getType() == Mutation.Type.UPDATE
+                        && !pending.getOrDefault(encryptedEntry.getWebsite(), vault.containsKey(encryptedEntry.getWebsite()))) {
+                    error = "Password entry not found for update.";
+                } else {
+                    records.add(LogRecord.put(username, encryptedEntry));
+                    pending.put(encryptedEntry.getWebsite(), true);
+                }
+                failed |= error != null;
+                results.add(error == null ? MutationResult.applied() : MutationResult.failed(error));
+            }
+            if (!failed && !records.isEmpty()) {
+                VaultChanges changes = changesOf(username);
+                for (LogRecord record : records) {
+                    if (record.getOp() == LogRecord.Op.PUT) {
+                        record.getEntry().setVersion(changes.record(record.getEntry().getWebsite()));
+                    } else {
+                        changes.record(record.getWebsite());
+                    }
+                }
+                commit(LogRecord.batch(username, records));
+            }
+        }
+        if (failed) {
+            for (int i = 0; i < results.size(); i++) {
+                if (results.get(i).isApplied()) {
+                    results.set(i, MutationResult.failed("Not applied: another mutation of the batch failed."));
+                }
+            }
+            System.out.println("Batch of " + mutations.size() + " mutations rejected for " + username + ".");
+            return results;
+        }
+        System.out.println("Batch of " + mutations.size() + " mutations applied for " + username + ".");
+        return results;
+    }
+
+    @Override
+    public List<PasswordEntry> listPasswords(String sessionToken) throws RemoteException {
+        SessionManager.Session session = sessions.resolve(sessionToken);
         // Decrypt passwords before returning to the client
-        return userPasswords.getOrDefault(username, new ConcurrentHashMap<>()).values().stream()
-                .map(entry -> new PasswordEntry(entry.getWebsite(), entry.getUsername(), PasswordEncryptor.decrypt(entry.getPassword())))
-                .collect(Collectors.toList());
+        Map<String, PasswordEntry> vault = vaultOf(session);
+        if (vault == null) {
+            return new ArrayList<>();
+        }
+        return new PackedEntryList(BulkDecryptor.decrypt(vault.values(), PARALLEL_DECRYPT_THRESHOLD));
+    }
+
+    @Override
+    public List<PasswordEntry> listPasswordMetadata(String sessionToken) throws RemoteException {
+        SessionManager.Session session = sessions.resolve(sessionToken);
+        Map<String, PasswordEntry> vault = vaultOf(session);
+        List<PasswordEntry> entries = new ArrayList<>();
+        if (vault != null) {
+            for (PasswordEntry entry : vault.values()) {
+                entries.add(metadataOf(entry));
+            }
+        }
+        return new PackedEntryList(entries);
+    }
+
+    @Override
+    public PasswordPage listPasswordPage(String sessionToken, String cursor, int pageSize) throws RemoteException {
+        SessionManager.Session session = sessions.resolve(sessionToken);
+        String after = null;
+        if (cursor != null) {
+            try {
+                after = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            } catch (IllegalArgumentException e) {
+                throw new RemoteException("Invalid page cursor.");
+            }
+        }
+        int limit = Math.min(Math.max(pageSize, 1), MAX_PAGE_SIZE);
+        Map<String, PasswordEntry> vault = vaultOrCreate(session);
+        long version;
+        synchronized (vault) {
+            // Every change up to this version is applied to the vault, later ones show up in changesSince
+            version = changesOf(session.username).version();
+        }
+        // A page walks the sorted websites from the cursor on, so it costs its own size rather than the vault's
+        NavigableSet<String> websites = sortedWebsitesOf(session.username, vault);
+        Iterator<String> remaining = (after == null ? websites : websites.tailSet(after, false)).iterator();
+        List<PasswordEntry> entries = new ArrayList<>(limit);
+        String last = null;
+        while (entries.size() < limit && remaining.hasNext()) {
+            String website = remaining.next();
+            PasswordEntry entry = vault.get(website);
+            if (entry != null) { // Null if deleted since the set was updated
+                entries.add(metadataOf(entry));
+                last = website;
+            }
+        }
+        String nextCursor = null;
+        if (last != null && remaining.hasNext()) {
+            nextCursor = Base64.getUrlEncoder().withoutPadding().encodeToString(last.getBytes(StandardCharsets.UTF_8));
+        }
+        return new PasswordPage(new PackedEntryList(entries), nextCursor, version);
+    }
+
+    @Override
+    public List<PasswordEntry> searchPasswords(String sessionToken, String query, int limit) throws RemoteException {
+        SessionManager.Session session = sessions.resolve(sessionToken);
+        Map<String, PasswordEntry> vault = vaultOrCreate(session);
+        SearchIndex index = searchIndexOf(session.username, vault);
+        List<PasswordEntry> results = new ArrayList<>();
+        for (String website : index.search(query, Math.min(Math.max(limit, 1), MAX_PAGE_SIZE))) {
+            PasswordEntry entry = vault.get(website);
+            if (entry != null) { // Null if deleted since the search
+                results.add(metadataOf(entry));
+            }
+        }
+        return new PackedEntryList(results);
+    }
+
+    @Override
+    public ChangeSet changesSince(String sessionToken, long version) throws RemoteException {
+        SessionManager.Session session = sessions.resolve(sessionToken);
+        // Changes are recorded under the vault's monitor, so an empty vault is needed to read them consistently
+        Map<String, PasswordEntry> vault = vaultOrCreate(session);
+        VaultChanges changes = changesOf(session.username);
+        synchronized (vault) {
+            if (!changes.covers(version)) {
+                List<PasswordEntry> entries = new ArrayList<>(vault.size());
+                for (PasswordEntry entry : vault.values()) {
+                    entries.add(metadataOf(entry));
+                }
+                return ChangeSet.full(changes.version(), new PackedEntryList(entries));
+            }
+            List<PasswordEntry> changed = new ArrayList<>();
+            List<String> deleted = new ArrayList<>();
+            for (String website : changes.changedSince(version)) {
+                PasswordEntry entry = vault.get(website);
+                if (entry != null) {
+                    changed.add(metadataOf(entry));
+                } else {
+                    deleted.add(website); // Tombstone
+                }
+            }
+            return ChangeSet.delta(changes.version(), new PackedEntryList(changed), deleted);
+        }
+    }
+
+    @Override
+    public void subscribe(String sessionToken, VaultListener listener) throws RemoteException {
+        SessionManager.Session session = sessions.resolve(sessionToken);
+        if (listener == null) {
+            throw new RemoteException("A listener is required.");
+        }
+        publisher.subscribe(session.username, sessionToken, listener);
+        System.out.println("Change listener subscribed for " + session.username);
+    }
+
+    @Override
+    public void unsubscribe(String sessionToken, VaultListener listener) throws RemoteException {
+        sessions.resolve(sessionToken);
+        publisher.unsubscribe(sessionToken, listener);
+    }
+
+    @Override
+    public String revealPassword(String sessionToken, String website) throws RemoteException {
+        SessionManager.Session session = sessions.resolve(sessionToken);
+        Map<String, PasswordEntry> vault = vaultOf(session);
+        PasswordEntry entry = vault == null ? null : vault.get(website);
+        if (entry == null) {
+            throw new EntryNotFoundException("Password entry not found.");
+        }
+        return PasswordEncryptor.decrypt(entry.getPassword());
     }
 } 
\ No newline at end of file
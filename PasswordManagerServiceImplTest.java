@@ -0,0 +1,116 @@
+package com.passwordmanager.server;
+
+import java.nio.file.Path;
+import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.passwordmanager.common.Mutation;
+import com.passwordmanager.common.MutationResult;
+import com.passwordmanager.common.PasswordEntry;
+import com.passwordmanager.common.PasswordPage;
+
+public class PasswordManagerServiceImplTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testRestartAfterRejectedEntry() throws Exception {
+        PasswordManagerServiceImpl service = new PasswordManagerServiceImpl(tempDir.toFile());
+        try {
+            String sessionToken = service.login("user1", "password123");
+            assertNotNull(sessionToken);
+            assertThrows(RemoteException.class,
+                    () -> service.addPassword(sessionToken, new PasswordEntry(null, "user1_x", "secret")));
+            assertThrows(RemoteException.class,
+                    () -> service.addPassword(sessionToken, new PasswordEntry("x.com", null, "secret")));
+            assertThrows(RemoteException.class,
+                    () -> service.updatePassword(sessionToken, new PasswordEntry("google.com", "user1_google", null)));
+            service.addPassword(sessionToken, new PasswordEntry("x.com", "user1_x", "secret"));
+        } finally {
+            stop(service);
+        }
+
+        // A rejected entry must not have reached the log, or the replay would fail on it
+        PasswordManagerServiceImpl restarted = new PasswordManagerServiceImpl(tempDir.toFile());
+        try {
+            String sessionToken = restarted.login("user1", "password123");
+            assertEquals(3, restarted.listPasswords(sessionToken).size());
+            assertEquals("secret", restarted.revealPassword(sessionToken, "x.com"));
+        } finally {
+            stop(restarted);
+        }
+    }
+
+    @Test
+    public void testBatchRejectsTheSameEntriesAsSingleCalls() throws Exception {
+        PasswordManagerServiceImpl service = new PasswordManagerServiceImpl(tempDir.toFile());
+        try {
+            String sessionToken = service.login("user1", "password123");
+            PasswordEntry noUsername = new PasswordEntry("x.com", null, "secret");
+            RemoteException single = assertThrows(RemoteException.class, () -> service.addPassword(sessionToken, noUsername));
+
+            List<MutationResult> results = service.applyBatch(sessionToken, Arrays.asList(
+                    Mutation.add(new PasswordEntry("y.com", "user1_y", "secret")),
+                    Mutation.add(noUsername),
+                    Mutation.update(new PasswordEntry(null, "user1_z", "secret"))));
+            assertFalse(results.get(0).isApplied(), "A batch with an invalid entry should not be applied");
+            assertEquals(single.getMessage(), results.get(1).getError());
+            assertEquals(single.getMessage(), results.get(2).getError());
+            assertEquals(2, service.listPasswords(sessionToken).size());
+        } finally {
+            stop(service);
+        }
+    }
+
+    @Test
+    public void testPagesFollowTheSortedWebsites() throws Exception {
+        PasswordManagerServiceImpl service = new PasswordManagerServiceImpl(tempDir.toFile());
+        try {
+            String sessionToken = service.login("user1", "password123");
+            for (String website : new String[]{"d.com", "b.com", "a.com"}) {
+                service.addPassword(sessionToken, new PasswordEntry(website, "user1", "secret"));
+            }
+            PasswordPage first = service.listPasswordPage(sessionToken, null, 2);
+            assertEquals(Arrays.asList("a.com", "b.com"), websitesOf(first));
+            assertNotNull(first.getNextCursor());
+
+            // Changes made between two pages show up in the next one when they sort after the cursor
+            service.addPassword(sessionToken, new PasswordEntry("c.com", "user1", "secret"));
+            service.deletePassword(sessionToken, "d.com");
+            List<String> websites = new ArrayList<>();
+            String cursor = first.getNextCursor();
+            while (cursor != null) {
+                PasswordPage page = service.listPasswordPage(sessionToken, cursor, 2);
+                websites.addAll(websitesOf(page));
+                cursor = page.getNextCursor();
+            }
+            assertEquals(Arrays.asList("c.com", "facebook.com", "google.com"), websites);
+        } finally {
+            stop(service);
+        }
+    }
+
+    private static List<String> websitesOf(PasswordPage page) {
+        List<String> websites = new ArrayList<>();
+        for (PasswordEntry entry : page.getEntries()) {
+            websites.add(entry.getWebsite());
+        }
+        return websites;
+    }
+
+    private static void stop(PasswordManagerServiceImpl service) throws Exception {
+        service.shutdown();
+        UnicastRemoteObject.unexportObject(service, true);
+    }
+}
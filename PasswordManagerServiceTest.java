@@ -3,23 +3,36 @@ package com.passwordmanager.server;
 import java.rmi.RemoteException;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.AfterEach;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import com.passwordmanager.common.ChangeSet;
+import com.passwordmanager.common.Mutation;
+import com.passwordmanager.common.MutationResult;
 import com.passwordmanager.common.PasswordEntry;
+import com.passwordmanager.common.PasswordPage;
 import com.passwordmanager.common.PasswordManagerService;
+import com.passwordmanager.common.VaultEvent;
+import com.passwordmanager.common.VaultListener;
 
 public class PasswordManagerServiceTest {
 
     private PasswordManagerService service;
+    private String sessionToken;
 
     private static final String TEST_USERNAME = "testuser";
     private static final String TEST_PASSWORD = "testpass";
@@ -33,12 +46,6 @@ public class PasswordManagerServiceTest {
         service = (PasswordManagerService) registry.lookup("PasswordManagerService");
         assertNotNull(service, "RMI service should not be null");
 
-        // Clean up any existing test user before each test
-        try {
-            service.deletePassword(TEST_USERNAME, "test.com"); // Clean up a potential lingering entry
-        } catch (Exception ignored) {
-            // Ignore if password doesn't exist, as it's a cleanup step
-        }
         try {
             // Attempt to register and then deregister if exists (no deregister method, so just try to register)
             // For tests, we'll try to register, if it fails, assume it's already there and proceed.
@@ -48,15 +55,25 @@ public class PasswordManagerServiceTest {
             // We'll proceed assuming the server handles existing users gracefully.
             System.out.println("Test user registration might have failed, possibly due to existing user: " + e.getMessage());
         }
+        sessionToken = service.login(TEST_USERNAME, TEST_PASSWORD);
+        assertNotNull(sessionToken, "Test user should be able to log in");
+
+        // Clean up any existing test entry before each test
+        try {
+            service.deletePassword(sessionToken, "test.com"); // Clean up a potential lingering entry
+        } catch (Exception ignored) {
+            // Ignore if password doesn't exist, as it's a cleanup step
+        }
     }
 
     @AfterEach
     public void tearDown() throws RemoteException {
         // Clean up the test user's passwords after each test
-        List<PasswordEntry> entries = service.listPasswords(TEST_USERNAME);
+        List<PasswordEntry> entries = service.listPasswords(sessionToken);
         for (PasswordEntry entry : entries) {
-            service.deletePassword(TEST_USERNAME, entry.getWebsite());
+            service.deletePassword(sessionToken, entry.getWebsite());
         }
+        service.logout(sessionToken);
     }
 
     @Test
@@ -69,9 +86,9 @@ public class PasswordManagerServiceTest {
         assertFalse(service.register(newUsername, newPassword), "Re-registering existing user should fail");
 
         // Test login
-        assertTrue(service.login(newUsername, newPassword), "Login with correct credentials should be successful");
-        assertFalse(service.login(newUsername, "wrongpass"), "Login with wrong password should fail");
-        assertFalse(service.login("nonexistent", "anypass"), "Login with nonexistent username should fail");
+        assertNotNull(service.login(newUsername, newPassword), "Login with correct credentials should be successful");
+        assertNull(service.login(newUsername, "wrongpass"), "Login with wrong password should fail");
+        assertNull(service.login("nonexistent", "anypass"), "Login with nonexistent username should fail");
     }
 
     @Test
@@ -82,8 +99,8 @@ public class PasswordManagerServiceTest {
         String password = "secret123";
 
         // Test add password
-        service.addPassword(TEST_USERNAME, new PasswordEntry(website, username, password));
-        List<PasswordEntry> entries = service.listPasswords(TEST_USERNAME);
+        service.addPassword(sessionToken, new PasswordEntry(website, username, password));
+        List<PasswordEntry> entries = service.listPasswords(sessionToken);
         assertEquals(1, entries.size(), "Should have 1 password entry after adding");
         PasswordEntry addedEntry = entries.get(0);
         assertEquals(website, addedEntry.getWebsite());
@@ -92,8 +109,8 @@ public class PasswordManagerServiceTest {
 
         // Test update password
         String updatedPassword = "newsecret456";
-        service.updatePassword(TEST_USERNAME, new PasswordEntry(website, username, updatedPassword));
-        entries = service.listPasswords(TEST_USERNAME);
+        service.updatePassword(sessionToken, new PasswordEntry(website, username, updatedPassword));
+        entries = service.listPasswords(sessionToken);
         assertEquals(1, entries.size(), "Should still have 1 password entry after update");
         PasswordEntry updatedEntry = entries.get(0);
         assertEquals(website, updatedEntry.getWebsite());
@@ -108,31 +125,172 @@ public class PasswordManagerServiceTest {
         String username = "deleteuser";
         String password = "deletepass";
 
-        service.addPassword(TEST_USERNAME, new PasswordEntry(website, username, password));
-        assertEquals(1, service.listPasswords(TEST_USERNAME).size(), "Should have 1 entry before deletion");
+        service.addPassword(sessionToken, new PasswordEntry(website, username, password));
+        assertEquals(1, service.listPasswords(sessionToken).size(), "Should have 1 entry before deletion");
 
-        service.deletePassword(TEST_USERNAME, website);
-        assertEquals(0, service.listPasswords(TEST_USERNAME).size(), "Should have 0 entries after deletion");
+        service.deletePassword(sessionToken, website);
+        assertEquals(0, service.listPasswords(sessionToken).size(), "Should have 0 entries after deletion");
 
         // Test deleting non-existent password
-        assertThrows(RemoteException.class, () -> service.deletePassword(TEST_USERNAME, "nonexistent.com"),
+        assertThrows(RemoteException.class, () -> service.deletePassword(sessionToken, "nonexistent.com"),
                 "Deleting a non-existent password should throw RemoteException");
     }
 
     @Test
     public void testListPasswords() throws Exception {
         // Use the default test user
-        List<PasswordEntry> initialEntries = service.listPasswords(TEST_USERNAME);
+        List<PasswordEntry> initialEntries = service.listPasswords(sessionToken);
         assertEquals(0, initialEntries.size(), "Should have no passwords initially for a clean test user");
 
-        service.addPassword(TEST_USERNAME, new PasswordEntry("site1.com", "u1", "p1"));
-        service.addPassword(TEST_USERNAME, new PasswordEntry("site2.com", "u2", "p2"));
+        service.addPassword(sessionToken, new PasswordEntry("site1.com", "u1", "p1"));
+        service.addPassword(sessionToken, new PasswordEntry("site2.com", "u2", "p2"));
 
-        List<PasswordEntry> entries = service.listPasswords(TEST_USERNAME);
+        List<PasswordEntry> entries = service.listPasswords(sessionToken);
         assertEquals(2, entries.size(), "Should list all added passwords");
 
         // Verify content
         assertTrue(entries.stream().anyMatch(e -> e.getWebsite().equals("site1.com") && e.getUsername().equals("u1") && e.getPassword().equals("p1")));
         assertTrue(entries.stream().anyMatch(e -> e.getWebsite().equals("site2.com") && e.getUsername().equals("u2") && e.getPassword().equals("p2")));
     }
-} 
\ No newline at end of file
+
+    @Test
+    public void testMetadataListingAndReveal() throws Exception {
+        service.addPassword(sessionToken, new PasswordEntry("meta.com", "metauser", "metapass"));
+
+        List<PasswordEntry> metadata = service.listPasswordMetadata(sessionToken);
+        assertEquals(1, metadata.size(), "Metadata listing should contain the added entry");
+        assertEquals("meta.com", metadata.get(0).getWebsite());
+        assertEquals("metauser", metadata.get(0).getUsername());
+        assertNull(metadata.get(0).getPassword(), "Metadata listing should not carry the password");
+
+        assertEquals("metapass", service.revealPassword(sessionToken, "meta.com"), "Revealed password should be decrypted");
+        assertThrows(RemoteException.class, () -> service.revealPassword(sessionToken, "nonexistent.com"),
+                "Revealing a non-existent entry should throw RemoteException");
+    }
+
+    @Test
+    public void testSessionLifecycle() throws Exception {
+        String otherToken = service.login(TEST_USERNAME, TEST_PASSWORD);
+        assertNotNull(otherToken, "A second login should open its own session");
+        service.addPassword(otherToken, new PasswordEntry("session.com", "sessionuser", "sessionpass"));
+        assertEquals(1, service.listPasswords(sessionToken).size(), "Sessions of the same user should share the vault");
+
+        service.logout(otherToken);
+        assertThrows(RemoteException.class, () -> service.listPasswords(otherToken),
+                "A closed session should be rejected");
+        assertThrows(RemoteException.class, () -> service.listPasswords("invalid-token"),
+                "An unknown token should be rejected");
+    }
+
+    @Test
+    public void testApplyBatch() throws Exception {
+        service.addPassword(sessionToken, new PasswordEntry("old.com", "olduser", "oldpass"));
+
+        List<MutationResult> results = service.applyBatch(sessionToken, List.of(
+                Mutation.add(new PasswordEntry("batch1.com", "b1", "p1")),
+                Mutation.add(new PasswordEntry("batch2.com", "b2", "p2")),
+                Mutation.update(new PasswordEntry("batch1.com", "b1", "p1-updated")),
+                Mutation.delete("old.com")));
+        assertEquals(4, results.size(), "There should be one result per mutation");
+        assertTrue(results.stream().allMatch(MutationResult::isApplied), "All mutations should be applied");
+        assertEquals(2, service.listPasswords(sessionToken).size(), "Batch should leave two entries");
+        assertEquals("p1-updated", service.revealPassword(sessionToken, "batch1.com"));
+
+        // One invalid mutation rejects the whole batch
+        results = service.applyBatch(sessionToken, List.of(
+                Mutation.add(new PasswordEntry("batch3.com", "b3", "p3")),
+                Mutation.delete("nonexistent.com")));
+        assertFalse(results.get(0).isApplied(), "Valid mutations of a rejected batch should not be applied");
+        assertNotNull(results.get(1).getError(), "The failing mutation should report an error");
+        assertEquals(2, service.listPasswords(sessionToken).size(), "A rejected batch should not change the vault");
+    }
+
+    @Test
+    public void testChangesSince() throws Exception {
+        service.addPassword(sessionToken, new PasswordEntry("sync1.com", "s1", "p1"));
+        service.addPassword(sessionToken, new PasswordEntry("sync2.com", "s2", "p2"));
+
+        ChangeSet all = service.changesSince(sessionToken, 0);
+        assertTrue(all.isFull(), "Version 0 should return the whole vault");
+        assertEquals(2, all.getChanged().size());
+
+        service.updatePassword(sessionToken, new PasswordEntry("sync1.com", "s1", "p1-updated"));
+        service.deletePassword(sessionToken, "sync2.com");
+        service.addPassword(sessionToken, new PasswordEntry("sync3.com", "s3", "p3"));
+
+        ChangeSet delta = service.changesSince(sessionToken, all.getVersion());
+        assertFalse(delta.isFull(), "A recent version should get only the changes");
+        assertEquals(2, delta.getChanged().size(), "Updated and added entries should be returned");
+        assertEquals(List.of("sync2.com"), delta.getDeleted(), "Deleted entry should be returned as a tombstone");
+        assertTrue(delta.getVersion() > all.getVersion(), "Version should increase with each change");
+
+        ChangeSet none = service.changesSince(sessionToken, delta.getVersion());
+        assertTrue(none.getChanged().isEmpty() && none.getDeleted().isEmpty(), "No change should be returned when up to date");
+    }
+
+    @Test
+    public void testPagedListing() throws Exception {
+        service.addPassword(sessionToken, new PasswordEntry("page-c.com", "c", "pc"));
+        service.addPassword(sessionToken, new PasswordEntry("page-a.com", "a", "pa"));
+        service.addPassword(sessionToken, new PasswordEntry("page-b.com", "b", "pb"));
+
+        PasswordPage first = service.listPasswordPage(sessionToken, null, 2);
+        assertEquals(2, first.getEntries().size(), "First page should be limited to the page size");
+        assertNotNull(first.getNextCursor(), "First page should have a continuation cursor");
+        PasswordPage second = service.listPasswordPage(sessionToken, first.getNextCursor(), 2);
+        assertNull(second.getNextCursor(), "Last page should have no continuation cursor");
+
+        List<String> websites = new ArrayList<>();
+        first.getEntries().forEach(entry -> websites.add(entry.getWebsite()));
+        second.getEntries().forEach(entry -> websites.add(entry.getWebsite()));
+        assertEquals(List.of("page-a.com", "page-b.com", "page-c.com"), websites, "Pages should be sorted by website");
+    }
+
+    @Test
+    public void testSearchPasswords() throws Exception {
+        service.addPassword(sessionToken, new PasswordEntry("search-mail.com", "alice", "p1"));
+        service.addPassword(sessionToken, new PasswordEntry("webmail.org", "bob", "p2"));
+        service.addPassword(sessionToken, new PasswordEntry("news.com", "MailReader", "p3"));
+
+        List<PasswordEntry> results = service.searchPasswords(sessionToken, "MAIL", 10);
+        assertEquals(3, results.size(), "Search should match website and username, ignoring case");
+        assertEquals("news.com", results.get(0).getWebsite(), "Prefix matches should come first");
+        assertNull(results.get(0).getPassword(), "Search results should not carry the password");
+        assertEquals(1, service.searchPasswords(sessionToken, "mail", 1).size(), "Results should be limited");
+
+        service.deletePassword(sessionToken, "webmail.org");
+        assertEquals(2, service.searchPasswords(sessionToken, "mail", 10).size(), "Index should be updated on delete");
+    }
+
+    @Test
+    public void testVaultEvents() throws Exception {
+        BlockingQueue<VaultEvent> received = new LinkedBlockingQueue<>();
+        VaultListener listener = events -> received.addAll(events);
+        VaultListener stub = (VaultListener) UnicastRemoteObject.exportObject(listener, 0);
+        try {
+            service.subscribe(sessionToken, stub);
+            // Changes made by another session of the same user are pushed to the listener
+            String otherSession = service.login(TEST_USERNAME, TEST_PASSWORD);
+            service.addPassword(otherSession, new PasswordEntry("test.com", "user", "secret"));
+            service.updatePassword(otherSession, new PasswordEntry("test.com", "user2", "secret2"));
+            service.deletePassword(otherSession, "test.com");
+
+            VaultEvent added = received.poll(5, TimeUnit.SECONDS);
+            assertNotNull(added, "Added event should be pushed");
+            assertEquals(VaultEvent.Type.ADDED, added.getType());
+            assertNull(added.getEntry().getPassword(), "Events should not carry the password");
+            VaultEvent updated = received.poll(5, TimeUnit.SECONDS);
+            assertEquals(VaultEvent.Type.UPDATED, updated.getType());
+            assertEquals("user2", updated.getEntry().getUsername());
+            VaultEvent deleted = received.poll(5, TimeUnit.SECONDS);
+            assertEquals(VaultEvent.Type.DELETED, deleted.getType());
+            assertEquals("test.com", deleted.getWebsite());
+
+            service.unsubscribe(sessionToken, stub);
+            service.addPassword(otherSession, new PasswordEntry("test.com", "user", "secret"));
+            assertNull(received.poll(500, TimeUnit.MILLISECONDS), "No event should be pushed after unsubscribing");
+        } finally {
+            UnicastRemoteObject.unexportObject(listener, true);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,58 @@
+package com.passwordmanager.common;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One page of {@link PasswordManagerService#listPasswordPage}, sorted by website.
+ * Entries carry no password, like listPasswordMetadata.
+ */
+public class PasswordPage implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private List<PasswordEntry> entries = new ArrayList<>();
+    private String nextCursor;
+    private long version;
+
+    // Default constructor for JSON serialization/deserialization
+    public PasswordPage() {
+    }
+
+    public PasswordPage(List<PasswordEntry> entries, String nextCursor, long version) {
+        this.entries = entries;
+        this.nextCursor = nextCursor;
+        this.version = version;
+    }
+
+    public List<PasswordEntry> getEntries() {
+        return entries;
+    }
+
+    public void setEntries(List<PasswordEntry> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * @return the opaque token to request the following page with, or null if this is the last page.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * @return the vault version when the page was read; changesSince with the first page's version
+     * returns everything changed while the following pages were fetched.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+}
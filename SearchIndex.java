@@ -0,0 +1,135 @@
+package com.passwordmanager.server;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import com.passwordmanager.common.PasswordEntry;
+
+/**
+ * In-memory search index over the website and username of one vault's entries, both lowercased.
+ * A trigram index answers substring queries of three characters or more: the candidates are the
+ * websites holding every trigram of the query, checked against the fields to drop false positives.
+ * A sorted map of the field values answers prefix queries, including shorter ones.
+ * The index is kept up to date entry by entry as the vault changes.
+ */
+public class SearchIndex {
+
+    private static final int GRAM_LENGTH = 3;
+
+    // Trigram -> websites of the entries whose website or username contains it
+    private final Map<String, Set<String>> postings = new HashMap<>();
+    // Lowercased website or username -> websites of the entries having that value
+    private final NavigableMap<String, Set<String>> sortedFields = new TreeMap<>();
+    // Website -> lowercased [website, username], to remove an entry
+    private final Map<String, String[]> fields = new HashMap<>();
+
+    public synchronized void put(PasswordEntry entry) {
+        String website = entry.getWebsite();
+        remove(website);
+        String[] normalized = {normalize(website), normalize(entry.getUsername())};
+        fields.put(website, normalized);
+        for (String field : normalized) {
+            sortedFields.computeIfAbsent(field, k -> new HashSet<>()).add(website);
+            for (String gram : trigrams(field)) {
+                postings.computeIfAbsent(gram, k -> new HashSet<>()).add(website);
+            }
+        }
+    }
+
+    public synchronized void remove(String website) {
+        String[] normalized = fields.remove(website);
+        if (normalized == null) {
+            return;
+        }
+        for (String field : normalized) {
+            removeFrom(sortedFields, field, website);
+            for (String gram : trigrams(field)) {
+                removeFrom(postings, gram, website);
+            }
+        }
+    }
+
+    /**
+     * Finds the entries whose website or username starts with or contains the query, ignoring case.
+     * Queries shorter than three characters only match prefixes.
+     * @return up to {@code limit} websites, prefix matches first, each group sorted by website.
+     */
+    public synchronized List<String> search(String query, int limit) {
+        String normalizedQuery = normalize(query);
+        Set<String> prefixMatches = new TreeSet<>();
+        for (Set<String> websites : sortedFields.subMap(normalizedQuery, true, normalizedQuery + Character.MAX_VALUE, true).values()) {
+            prefixMatches.addAll(websites);
+        }
+        Set<String> results = new LinkedHashSet<>(prefixMatches);
+        if (normalizedQuery.length() >= GRAM_LENGTH && results.size() < limit) {
+            Set<String> substringMatches = new TreeSet<>();
+            for (String website : candidates(normalizedQuery)) {
+                String[] normalized = fields.get(website);
+                if (normalized[0].contains(normalizedQuery) || normalized[1].contains(normalizedQuery)) {
+                    substringMatches.add(website);
+                }
+            }
+            results.addAll(substringMatches);
+        }
+        List<String> limited = new ArrayList<>(Math.min(limit, results.size()));
+        for (String website : results) {
+            if (limited.size() == limit) {
+                break;
+            }
+            limited.add(website);
+        }
+        return limited;
+    }
+
+    /**
+     * @return the websites holding every trigram of the query, scanning the rarest trigram's postings.
+     */
+    private Set<String> candidates(String normalizedQuery) {
+        List<Set<String>> lists = new ArrayList<>();
+        for (String gram : trigrams(normalizedQuery)) {
+            Set<String> websites = postings.get(gram);
+            if (websites == null) {
+                return new HashSet<>();
+            }
+            lists.add(websites);
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+        Set<String> candidates = new HashSet<>(lists.get(0));
+        for (int i = 1; i < lists.size() && !candidates.isEmpty(); i++) {
+            candidates.retainAll(lists.get(i));
+        }
+        return candidates;
+    }
+
+    private static Set<String> trigrams(String value) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= value.length(); i++) {
+            grams.add(value.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+
+    private static void removeFrom(Map<String, Set<String>> index, String key, String website) {
+        Set<String> websites = index.get(key);
+        if (websites != null) {
+            websites.remove(website);
+            if (websites.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,14 @@
+package com.passwordmanager.common;
+
+import java.rmi.RemoteException;
+
+/**
+ * Thrown when the server is overloaded and rejects a call without running it; the call may be retried later.
+ */
+public class ServerBusyException extends RemoteException {
+    private static final long serialVersionUID = 1L;
+
+    public ServerBusyException() {
+        super("Server busy, please try again later.");
+    }
+}
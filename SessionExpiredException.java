@@ -0,0 +1,14 @@
+package com.passwordmanager.common;
+
+import java.rmi.RemoteException;
+
+/**
+ * Thrown by calls made with a session token that is unknown or has expired; the user needs to log in again.
+ */
+public class SessionExpiredException extends RemoteException {
+    private static final long serialVersionUID = 1L;
+
+    public SessionExpiredException() {
+        super("Session expired or invalid. Please log in again.");
+    }
+}
@@ -0,0 +1,115 @@
+package com.passwordmanager.server;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.passwordmanager.common.PasswordEntry;
+import com.passwordmanager.common.SessionExpiredException;
+
+/**
+ * Table of the sessions opened by {@code login}, keyed by an opaque random token.
+ * A session expires after {@code idleTimeoutSeconds} without a call; expired sessions are
+ * rejected on access and swept periodically by a background thread.
+ */
+public class SessionManager {
+
+    private static final int TOKEN_BYTES = 32;
+    private static final long SWEEP_PERIOD_SECONDS = 60;
+
+    /**
+     * Per-session context. The vault reference is cached on first use: once created, a user's
+     * in-memory vault map is never replaced, so later calls skip the vault lookup.
+     */
+    static final class Session {
+        final String username;
+        volatile Map<String, PasswordEntry> vault;
+        private volatile long lastAccess = System.currentTimeMillis();
+
+        private Session(String username) {
+            this.username = username;
+        }
+    }
+
+    private final SecureRandom random = new SecureRandom();
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final long idleTimeoutMillis;
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "session-sweeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public SessionManager(long idleTimeoutSeconds) {
+        this.idleTimeoutMillis = TimeUnit.SECONDS.toMillis(idleTimeoutSeconds);
+    }
+
+    public void start() {
+        sweeper.scheduleWithFixedDelay(this::sweep, SWEEP_PERIOD_SECONDS, SWEEP_PERIOD_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public void stop() {
+        sweeper.shutdown();
+    }
+
+    /**
+     * Opens a session for an authenticated user.
+     * @return the session token.
+     */
+    public String open(String username) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        sessions.put(token, new Session(username));
+        return token;
+    }
+
+    /**
+     * Returns the session of a token and marks it as used.
+     * @throws SessionExpiredException if the token is unknown or the session has expired.
+     */
+    Session resolve(String token) throws SessionExpiredException {
+        Session session = token == null ? null : sessions.get(token);
+        long now = System.currentTimeMillis();
+        if (session == null || now - session.lastAccess > idleTimeoutMillis) {
+            if (session != null) {
+                sessions.remove(token, session);
+            }
+            throw new SessionExpiredException();
+        }
+        session.lastAccess = now;
+        return session;
+    }
+
+    /**
+     * @return whether a token belongs to a session that has not expired, without marking it as used.
+     */
+    public boolean isOpen(String token) {
+        Session session = sessions.get(token);
+        return session != null && System.currentTimeMillis() - session.lastAccess <= idleTimeoutMillis;
+    }
+
+    public void close(String token) {
+        if (token != null) {
+            sessions.remove(token);
+        }
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    private void sweep() {
+        long now = System.currentTimeMillis();
+        int before = sessions.size();
+        sessions.values().removeIf(session -> now - session.lastAccess > idleTimeoutMillis);
+        int expired = before - sessions.size();
+        if (expired > 0) {
+            System.out.println("Expired " + expired + " idle sessions.");
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.passwordmanager.client.gui;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import com.passwordmanager.common.PasswordEntry;
+
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.collections.FXCollections;
+import javafx.scene.Scene;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.stage.Stage;
+
+/**
+ * Scrolls a password table of 100,000 rows, set up like the one of MainController, and reports the time
+ * taken by each frame's CSS and layout pass and the memory allocated meanwhile on the JavaFX thread,
+ * with and without a fixed row height.
+ * It needs no display when run with the headless Monocle platform, a test dependency:
+ * mvn test-compile exec:java@table-scroll-benchmark [-Dexec.args="rows frames"]
+ */
+public class TableScrollBenchmark {
+
+    // Rows scrolled per frame, about one mouse wheel notch
+    private static final int ROWS_PER_FRAME = 3;
+    private static final int WARMUP_FRAMES = 2000;
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int frames = args.length > 1 ? Integer.parseInt(args[1]) : 5000;
+        List<PasswordEntry> entries = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            entries.add(new PasswordEntry("site" + i + ".example.com", "user" + i, null));
+        }
+
+        CountDownLatch started = new CountDownLatch(1);
+        Platform.startup(started::countDown);
+        started.await();
+        System.out.printf("%-18s %10s %10s %10s %14s%n", "row height", "avg ms", "p99 ms", "KB/frame", "alloc MB/s");
+        run(() -> report("computed", entries, frames, false));
+        run(() -> report("fixed", entries, frames, true));
+        Platform.exit();
+    }
+
+    private static void run(Runnable benchmark) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        Platform.runLater(() -> {
+            try {
+                benchmark.run();
+            } finally {
+                done.countDown();
+            }
+        });
+        done.await();
+    }
+
+    private static void report(String mode, List<PasswordEntry> entries, int frames, boolean fixedCellSize) {
+        TableView<PasswordEntry> table = newTable(entries, fixedCellSize);
+        Stage stage = new Stage();
+        stage.setScene(new Scene(table, 800, 600));
+        stage.show();
+
+        scroll(table, entries.size(), WARMUP_FRAMES, new long[WARMUP_FRAMES]);
+        long[] frameNanos = new long[frames];
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        scroll(table, entries.size(), frames, frameNanos);
+        long elapsed = System.nanoTime() - start;
+        long allocated = allocatedBytes() - allocatedBefore;
+        stage.close();
+
+        Arrays.sort(frameNanos);
+        double average = Arrays.stream(frameNanos).average().orElse(0);
+        System.out.printf("%-18s %10.3f %10.3f %10.1f %14.1f%n", mode, average / 1e6,
+                frameNanos[(int) (frames * 0.99)] / 1e6, allocated / 1024.0 / frames,
+                allocated / 1024.0 / 1024.0 / (elapsed / 1e9));
+    }
+
+    private static TableView<PasswordEntry> newTable(List<PasswordEntry> entries, boolean fixedCellSize) {
+        TableView<PasswordEntry> table = new TableView<>(FXCollections.observableArrayList(entries));
+        TableColumn<PasswordEntry, String> websiteColumn = new TableColumn<>("Website");
+        websiteColumn.setCellValueFactory(cell -> new ReadOnlyStringWrapper(cell.getValue().getWebsite()));
+        TableColumn<PasswordEntry, String> usernameColumn = new TableColumn<>("Username");
+        usernameColumn.setCellValueFactory(cell -> new ReadOnlyStringWrapper(cell.getValue().getUsername()));
+        TableColumn<PasswordEntry, String> passwordColumn = new TableColumn<>("Password");
+        passwordColumn.setCellValueFactory(cell -> new ReadOnlyStringWrapper(cell.getValue().getPassword()));
+        passwordColumn.setCellFactory(column -> new PasswordCell((entry, onRevealed) -> { }, () -> { }));
+        table.getColumns().add(websiteColumn);
+        table.getColumns().add(usernameColumn);
+        table.getColumns().add(passwordColumn);
+        if (fixedCellSize) {
+            table.setFixedCellSize(MainController.ROW_HEIGHT);
+        }
+        return table;
+    }
+
+    /**
+     * Scrolls down a few rows per frame, wrapping around at the end, and runs the pass that would
+     * precede rendering each frame.
+     */
+    private static void scroll(TableView<PasswordEntry> table, int rows, int frames, long[] frameNanos) {
+        for (int frame = 0; frame < frames; frame++) {
+            long start = System.nanoTime();
+            table.scrollTo((frame * ROWS_PER_FRAME) % rows);
+            table.applyCss();
+            table.layout();
+            frameNanos[frame] = System.nanoTime() - start;
+        }
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,120 @@
+package com.passwordmanager.server;
+
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.passwordmanager.client.BinaryProtocolClient;
+import com.passwordmanager.common.PasswordEntry;
+import com.passwordmanager.common.PasswordManagerService;
+
+/**
+ * Compares RMI with the binary protocol against one in-process server: the latency of sequential calls
+ * from one thread, and the throughput of calls made concurrently by several threads sharing one client,
+ * which the binary protocol pipelines on its single connection.
+ * It creates a vault, so run it from an empty directory:
+ * java -cp target/classes com.passwordmanager.server.TransportBenchmark [threads]
+ */
+public class TransportBenchmark {
+
+    private static final int RMI_PORT = 1199;
+    private static final int BINARY_PORT = 1200;
+    private static final int ENTRIES = 1000;
+    private static final int PAGE_SIZE = 50;
+    private static final long MIN_RUN_NANOS = 1_000_000_000L;
+
+    private interface Call {
+        void run(PasswordManagerService service, String sessionToken, int i) throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        PasswordManagerServiceImpl service = new PasswordManagerServiceImpl();
+        Registry registry = LocateRegistry.createRegistry(RMI_PORT);
+        registry.rebind("PasswordManagerService", service);
+        BinaryProtocolServer binaryServer = new BinaryProtocolServer(service, BINARY_PORT, 4 * Runtime.getRuntime().availableProcessors());
+        binaryServer.start();
+
+        PasswordManagerService rmi = (PasswordManagerService) LocateRegistry.getRegistry("localhost", RMI_PORT).lookup("PasswordManagerService");
+        try (BinaryProtocolClient binary = new BinaryProtocolClient("localhost", BINARY_PORT)) {
+            String user = "bench" + System.nanoTime();
+            rmi.register(user, "benchmark");
+            String sessionToken = rmi.login(user, "benchmark");
+            for (int i = 0; i < ENTRIES; i++) {
+                rmi.addPassword(sessionToken, new PasswordEntry("site" + i + ".example.com", "user" + i, "Passw0rd!" + i));
+            }
+
+            Call reveal = (s, token, i) -> s.revealPassword(token, "site" + (i % ENTRIES) + ".example.com");
+            Call page = (s, token, i) -> s.listPasswordPage(token, null, PAGE_SIZE);
+            System.out.println("Cores: " + Runtime.getRuntime().availableProcessors() + ", threads: " + threads);
+            System.out.printf("%-16s %-8s %16s %18s%n", "call", "transport", "sequential us", "concurrent calls/s");
+            report("revealPassword", "rmi", rmi, sessionToken, reveal, threads);
+            report("revealPassword", "binary", binary, sessionToken, reveal, threads);
+            report("listPasswordPage", "rmi", rmi, sessionToken, page, threads);
+            report("listPasswordPage", "binary", binary, sessionToken, page, threads);
+            rmi.logout(sessionToken);
+        } finally {
+            binaryServer.close();
+            registry.unbind("PasswordManagerService");
+            service.shutdown();
+        }
+        System.exit(0); // RMI keeps non-daemon threads alive
+    }
+
+    private static void report(String call, String transport, PasswordManagerService service, String sessionToken,
+                               Call body, int threads) throws Exception {
+        // Warm up both measurements first
+        sequential(service, sessionToken, body);
+        concurrent(service, sessionToken, body, threads);
+        double latency = sequential(service, sessionToken, body);
+        double throughput = concurrent(service, sessionToken, body, threads);
+        System.out.printf("%-16s %-8s %16.1f %18.0f%n", call, transport, latency / 1000, throughput);
+    }
+
+    /**
+     * @return the average duration of one call, in nanoseconds.
+     */
+    private static double sequential(PasswordManagerService service, String sessionToken, Call body) throws Exception {
+        long calls = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            body.run(service, sessionToken, (int) calls);
+            calls++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < MIN_RUN_NANOS);
+        return (double) elapsed / calls;
+    }
+
+    /**
+     * @return the number of calls completed per second by all threads together.
+     */
+    private static double concurrent(PasswordManagerService service, String sessionToken, Call body, int threads) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            long start = System.nanoTime();
+            List<Future<Long>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(pool.submit(() -> {
+                    long calls = 0;
+                    while (System.nanoTime() - start < MIN_RUN_NANOS) {
+                        body.run(service, sessionToken, (int) calls);
+                        calls++;
+                    }
+                    return calls;
+                }));
+            }
+            long calls = 0;
+            for (Future<Long> result : results) {
+                calls += result.get();
+            }
+            return calls * 1e9 / (System.nanoTime() - start);
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
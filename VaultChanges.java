@@ -0,0 +1,68 @@
+package com.passwordmanager.server;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Change tracking of one vault, for delta sync.
+ * Every change takes the next version of the vault and records the website it touched. Only the
+ * latest change of each website is kept, so a tracked website that is no longer in the vault was
+ * deleted: the tracking entry is its tombstone.
+ * Tracking lives in memory and starts at a per-run epoch. Clients holding a version from before the
+ * horizon (an earlier run, or changes pruned beyond {@code maxTracked} websites) need a full listing.
+ * Callers hold the vault's monitor.
+ */
+public class VaultChanges {
+
+    private final NavigableMap<Long, String> websitesByVersion = new TreeMap<>();
+    private final Map<String, Long> versionsByWebsite = new HashMap<>();
+    private final int maxTracked;
+    private long version;
+    private long horizon;
+
+    public VaultChanges(long epoch, int maxTracked) {
+        this.version = epoch;
+        this.horizon = epoch;
+        this.maxTracked = maxTracked;
+    }
+
+    /**
+     * Records a change (put or delete) of a website.
+     * @return the version of the change.
+     */
+    public long record(String website) {
+        long changeVersion = ++version;
+        Long previous = versionsByWebsite.put(website, changeVersion);
+        if (previous != null) {
+            websitesByVersion.remove(previous);
+        }
+        websitesByVersion.put(changeVersion, website);
+        if (websitesByVersion.size() > maxTracked) {
+            Map.Entry<Long, String> oldest = websitesByVersion.pollFirstEntry();
+            versionsByWebsite.remove(oldest.getValue());
+            horizon = oldest.getKey();
+        }
+        return changeVersion;
+    }
+
+    public long version() {
+        return version;
+    }
+
+    /**
+     * @return whether every change after {@code since} is still tracked.
+     */
+    public boolean covers(long since) {
+        return since >= horizon && since <= version;
+    }
+
+    /**
+     * @return the websites changed after {@code since}, oldest change first.
+     */
+    public Collection<String> changedSince(long since) {
+        return websitesByVersion.tailMap(since, false).values();
+    }
+}
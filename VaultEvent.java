@@ -0,0 +1,78 @@
+package com.passwordmanager.common;
+
+import java.io.Serializable;
+
+/**
+ * A change of a vault pushed to the {@link VaultListener}s of its user. ADDED and UPDATED carry the entry
+ * without its password, DELETED only the website. RESYNC tells the listener that events were dropped
+ * because it did not keep up, so it should reload with {@link PasswordManagerService#changesSince}.
+ */
+public class VaultEvent implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public enum Type { ADDED, UPDATED, DELETED, RESYNC }
+
+    private Type type;
+    private String website;
+    private PasswordEntry entry;
+
+    // Default constructor for JSON serialization/deserialization
+    public VaultEvent() {
+    }
+
+    public static VaultEvent added(PasswordEntry entry) {
+        return of(Type.ADDED, entry.getWebsite(), entry);
+    }
+
+    public static VaultEvent updated(PasswordEntry entry) {
+        return of(Type.UPDATED, entry.getWebsite(), entry);
+    }
+
+    public static VaultEvent deleted(String website) {
+        return of(Type.DELETED, website, null);
+    }
+
+    public static VaultEvent resync() {
+        return of(Type.RESYNC, null, null);
+    }
+
+    private static VaultEvent of(Type type, String website, PasswordEntry entry) {
+        VaultEvent event = new VaultEvent();
+        event.type = type;
+        event.website = website;
+        event.entry = entry;
+        return event;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public String getWebsite() {
+        return website;
+    }
+
+    public void setWebsite(String website) {
+        this.website = website;
+    }
+
+    public PasswordEntry getEntry() {
+        return entry;
+    }
+
+    public void setEntry(PasswordEntry entry) {
+        this.entry = entry;
+    }
+
+    @Override
+    public String toString() {
+        return "VaultEvent{" +
+               "type=" + type +
+               ", website='" + website + '\'' +
+               "}";
+    }
+}
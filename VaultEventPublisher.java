@@ -0,0 +1,161 @@
+package com.passwordmanager.server;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import com.passwordmanager.common.VaultEvent;
+import com.passwordmanager.common.VaultListener;
+
+/**
+ * Fans the changes of each vault out to the listeners subscribed by its user's sessions.
+ * {@link #publish} only appends to a bounded queue per subscriber, so writers never wait for a client;
+ * a small dispatcher pool drains each queue with at most one callback in flight per subscriber.
+ * A subscriber whose queue overflows gets a single RESYNC event instead of the events it missed,
+ * and one whose callback fails, or whose session has ended, is dropped.
+ */
+public class VaultEventPublisher {
+
+    private static final int MAX_EVENTS_PER_CALLBACK = 256;
+
+    private final int queueCapacity;
+    private final Predicate<String> sessionOpen;
+    private final ExecutorService dispatcher;
+    private final Map<String, List<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+    private final class Subscriber {
+        final String username;
+        final String sessionToken;
+        final VaultListener listener;
+        final BlockingQueue<VaultEvent> queue = new ArrayBlockingQueue<>(queueCapacity);
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        volatile boolean overflowed;
+
+        Subscriber(String username, String sessionToken, VaultListener listener) {
+            this.username = username;
+            this.sessionToken = sessionToken;
+            this.listener = listener;
+        }
+
+        void offer(List<VaultEvent> events) {
+            for (VaultEvent event : events) {
+                if (!queue.offer(event)) {
+                    overflowed = true;
+                    break;
+                }
+            }
+            schedule();
+        }
+
+        void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                dispatcher.execute(this::deliver);
+            }
+        }
+
+        void deliver() {
+            List<VaultEvent> batch = new ArrayList<>();
+            if (overflowed) {
+                // The client reloads everything it missed, so the queued events are useless
+                overflowed = false;
+                queue.clear();
+                batch.add(VaultEvent.resync());
+            } else {
+                queue.drainTo(batch, MAX_EVENTS_PER_CALLBACK);
+            }
+            try {
+                if (!batch.isEmpty()) {
+                    listener.vaultChanged(batch);
+                }
+            } catch (RemoteException | RuntimeException e) {
+                System.out.println("Dropping vault listener of " + username + ": " + e.getMessage());
+                remove(this);
+                return;
+            } finally {
+                scheduled.set(false);
+            }
+            if (!queue.isEmpty() || overflowed) {
+                schedule();
+            }
+        }
+    }
+
+    /**
+     * @param queueCapacity Events queued per subscriber before it is asked to resynchronize.
+     * @param threads Size of the pool running the callbacks.
+     * @param sessionOpen Tells whether a session token is still valid.
+     */
+    public VaultEventPublisher(int queueCapacity, int threads, Predicate<String> sessionOpen) {
+        this.queueCapacity = queueCapacity;
+        this.sessionOpen = sessionOpen;
+        AtomicInteger counter = new AtomicInteger();
+        this.dispatcher = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "vault-event-dispatcher-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void subscribe(String username, String sessionToken, VaultListener listener) {
+        subscribers.computeIfAbsent(username, k -> new CopyOnWriteArrayList<>())
+                .add(new Subscriber(username, sessionToken, listener));
+    }
+
+    public void unsubscribe(String sessionToken, VaultListener listener) {
+        for (List<Subscriber> list : subscribers.values()) {
+            list.removeIf(s -> s.sessionToken.equals(sessionToken) && s.listener.equals(listener));
+        }
+    }
+
+    /**
+     * Drops every listener of a session, when it is closed.
+     */
+    public void unsubscribeSession(String sessionToken) {
+        for (List<Subscriber> list : subscribers.values()) {
+            list.removeIf(s -> s.sessionToken.equals(sessionToken));
+        }
+    }
+
+    public boolean hasSubscribers(String username) {
+        List<Subscriber> list = subscribers.get(username);
+        return list != null && !list.isEmpty();
+    }
+
+    /**
+     * Queues events for the listeners of a user. Called in commit order, under the vault's monitor.
+     */
+    public void publish(String username, List<VaultEvent> events) {
+        List<Subscriber> list = subscribers.get(username);
+        if (list == null || events.isEmpty()) {
+            return;
+        }
+        for (Subscriber subscriber : list) {
+            if (sessionOpen.test(subscriber.sessionToken)) {
+                subscriber.offer(events);
+            } else {
+                remove(subscriber); // The session expired
+            }
+        }
+    }
+
+    private void remove(Subscriber subscriber) {
+        List<Subscriber> list = subscribers.get(subscriber.username);
+        if (list != null) {
+            list.remove(subscriber);
+        }
+    }
+
+    public void shutdown() {
+        dispatcher.shutdown();
+    }
+}
@@ -0,0 +1,87 @@
+package com.passwordmanager.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.passwordmanager.common.PasswordEntry;
+
+/**
+ * Command-line converter between the JSON files (users.json, passwords.json) and the binary vault
+ * directory used by the server. Run it while the server is stopped.
+ * <pre>
+ * import &lt;users.json&gt; &lt;passwords.json&gt; &lt;vaultsDir&gt;
+ * export &lt;vaultsDir&gt; &lt;users.json&gt; &lt;passwords.json&gt; [logFile]
+ * </pre>
+ * Export also applies the records still pending in the write-ahead log (vault.wal by default).
+ * It only reads the log: an incomplete last record is left out rather than truncated away.
+ */
+public class VaultFormatConverter {
+
+    private static final String DEFAULT_LOG_FILE = "vault.wal";
+
+    public static void main(String[] args) {
+        try {
+            if (args.length == 4 && args[0].equals("import")) {
+                importJson(new File(args[1]), new File(args[2]), new File(args[3]));
+            } else if ((args.length == 4 || args.length == 5) && args[0].equals("export")) {
+                File logFile = new File(args.length == 5 ? args[4] : DEFAULT_LOG_FILE);
+                exportJson(new File(args[1]), new File(args[2]), new File(args[3]), logFile);
+            } else {
+                System.err.println("Usage: import <users.json> <passwords.json> <vaultsDir>");
+                System.err.println("       export <vaultsDir> <users.json> <passwords.json> [logFile]");
+                System.exit(2);
+            }
+        } catch (IOException e) {
+            System.err.println("Conversion failed: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Builds a binary vault directory from JSON files. The JSON files are renamed with a .migrated suffix.
+     */
+    public static void importJson(File usersFile, File passwordsFile, File vaultsDir) throws IOException {
+        if (new File(vaultsDir, "index.json").exists()) {
+            throw new IOException(vaultsDir + " already contains a vault");
+        }
+        VaultSnapshot snapshot = new VaultSnapshot(usersFile, passwordsFile, vaultsDir, new ObjectMapper());
+        snapshot.open();
+        snapshot.convertLegacyVaults();
+        System.out.println("Imported " + snapshot.vaultUsers().size() + " vaults into " + vaultsDir + ".");
+    }
+
+    /**
+     * Writes the content of a binary vault directory, plus pending log records, as JSON files.
+     */
+    public static void exportJson(File vaultsDir, File usersFile, File passwordsFile, File logFile) throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        VaultSnapshot snapshot = new VaultSnapshot(vaultsDir, objectMapper);
+        snapshot.open();
+
+        Map<String, String[]> credentials = new HashMap<>();
+        Map<String, Map<String, PasswordEntry>> passwords = new ConcurrentHashMap<>();
+        if (snapshot.exists()) {
+            snapshot.readCredentials(credentials);
+        }
+        for (String user : snapshot.vaultUsers()) {
+            passwords.put(user, snapshot.readVault(user));
+        }
+        List<File> logFiles = WriteAheadLog.sealedSegments(logFile);
+        logFiles.add(logFile);
+        for (File file : logFiles) {
+            WriteAheadLog.read(file, objectMapper, record -> record.applyTo(credentials, passwords));
+        }
+
+        objectMapper.enable(SerializationFeature.INDENT_OUTPUT);
+        objectMapper.writeValue(usersFile, credentials);
+        objectMapper.writeValue(passwordsFile, passwords);
+        System.out.println("Exported " + credentials.size() + " users and " + passwords.size() + " vaults.");
+    }
+}
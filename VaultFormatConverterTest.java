@@ -0,0 +1,54 @@
+package com.passwordmanager.server;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.passwordmanager.common.PasswordEntry;
+
+public class VaultFormatConverterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testImportThenExport() throws Exception {
+        File usersFile = tempDir.resolve("users.json").toFile();
+        File passwordsFile = tempDir.resolve("passwords.json").toFile();
+        Files.write(usersFile.toPath(), "{\"alice\":[\"aGFzaA==\",\"c2FsdA==\"]}".getBytes());
+        Files.write(passwordsFile.toPath(), ("{\"alice\":{\"a.com\":{\"website\":\"a.com\",\"username\":\"alice_a\","
+                + "\"password\":\"ZW5jMQ==\"}}}").getBytes());
+        File vaultsDir = tempDir.resolve("vaults").toFile();
+
+        VaultFormatConverter.importJson(usersFile, passwordsFile, vaultsDir);
+        assertFalse(usersFile.exists(), "Imported JSON files should be set aside");
+        assertTrue(new File(passwordsFile.getPath() + ".migrated").exists());
+
+        // Export also applies the records still in the log
+        File logFile = tempDir.resolve("vault.wal").toFile();
+        try (WriteAheadLog log = new WriteAheadLog(logFile, objectMapper)) {
+            log.append(LogRecord.put("alice", new PasswordEntry("b.com", "alice_b", "ZW5jMg==")));
+        }
+        File exportedUsers = tempDir.resolve("exported-users.json").toFile();
+        File exportedPasswords = tempDir.resolve("exported-passwords.json").toFile();
+        VaultFormatConverter.exportJson(vaultsDir, exportedUsers, exportedPasswords, logFile);
+
+        Map<String, String[]> users = objectMapper.readValue(exportedUsers, new TypeReference<Map<String, String[]>>() {});
+        assertEquals("c2FsdA==", users.get("alice")[1]);
+        Map<String, Map<String, PasswordEntry>> passwords = objectMapper.readValue(exportedPasswords,
+                new TypeReference<Map<String, Map<String, PasswordEntry>>>() {});
+        assertEquals(2, passwords.get("alice").size());
+        assertEquals("ZW5jMQ==", passwords.get("alice").get("a.com").getPassword());
+    }
+}
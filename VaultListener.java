@@ -0,0 +1,13 @@
+package com.passwordmanager.common;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.util.List;
+
+/**
+ * Callback exported by a client to receive the changes of its user's vault, see
+ * {@link PasswordManagerService#subscribe}. Events arrive in commit order, possibly several per call.
+ */
+public interface VaultListener extends Remote {
+    void vaultChanged(List<VaultEvent> events) throws RemoteException;
+}
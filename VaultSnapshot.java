@@ -0,0 +1,291 @@
+package com.passwordmanager.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.passwordmanager.common.PasswordEntry;
+
+/**
+ * Point-in-time copy of the vault on disk, in the shard directory: credentials in users.vlt and each
+ * user's entries in their own shard file, listed by a small index.json. Credentials and shards use the
+ * {@link BinaryVaultFormat}; shards written as JSON by an older version are still readable.
+ * Writing one user's vault only rewrites that user's shard, and a vault is read only when requested.
+ * Mutations made after the snapshot live in the write-ahead log.
+ * <p>
+ * A passwords.json left by an older version is not converted up front: it is scanned once with the
+ * streaming parser and the index records the byte range of each user's section. A user's entries are
+ * parsed from that range on first access and move to a shard the first time the vault changes.
+ */
+public class VaultSnapshot {
+
+    private static final String INDEX_FILE = "index.json";
+    private static final String CREDENTIALS_FILE = "users" + BinaryVaultFormat.EXTENSION;
+    // Index value of a vault still stored in the legacy passwords.json: "@<offset>+<length>"
+    private static final String LEGACY_PREFIX = "@";
+
+    private final File legacyUsersFile;
+    private final File legacyPasswordsFile;
+    private final File shardDir;
+    private final File credentialsFile;
+    private final File indexFile;
+    private final ObjectMapper objectMapper;
+    // Shard file name of every user that has one: Map<username, fileName>
+    private final Map<String, String> index = new ConcurrentHashMap<>();
+    // Shards replaced under a new file name, deleted once the index no longer points to them
+    private final Set<String> obsoleteShards = ConcurrentHashMap.newKeySet();
+
+    public VaultSnapshot(File shardDir, ObjectMapper objectMapper) {
+        this(null, null, shardDir, objectMapper);
+    }
+
+    public VaultSnapshot(File legacyUsersFile, File legacyPasswordsFile, File shardDir, ObjectMapper objectMapper) {
+        this.legacyUsersFile = legacyUsersFile;
+        this.legacyPasswordsFile = legacyPasswordsFile;
+        this.shardDir = shardDir;
+        this.credentialsFile = new File(shardDir, CREDENTIALS_FILE);
+        this.indexFile = new File(shardDir, INDEX_FILE);
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Reads the shard index. users.json left by an older version is converted and passwords.json is indexed first.
+     */
+    public void open() throws IOException {
+        if (!credentialsFile.exists() && legacyUsersFile != null && legacyUsersFile.exists()) {
+            migrateLegacyUsers();
+        }
+        if (indexFile.exists()) {
+            index.putAll(objectMapper.readValue(indexFile, new TypeReference<Map<String, String>>() {}));
+        } else if (legacyPasswordsFile != null && legacyPasswordsFile.exists()) {
+            indexLegacyPasswords();
+        }
+    }
+
+    public boolean exists() {
+        return credentialsFile.exists();
+    }
+
+    public void readCredentials(Map<String, String[]> userCredentials) throws IOException {
+        BinaryVaultFormat.readCredentials(credentialsFile, userCredentials);
+    }
+
+    public void writeCredentials(Map<String, String[]> userCredentials) throws IOException {
+        writeAtomically(credentialsFile, BinaryVaultFormat.encodeCredentials(userCredentials));
+    }
+
+    public long credentialsSize() {
+        return credentialsFile.length();
+    }
+
+    public boolean hasVault(String username) {
+        return index.containsKey(username);
+    }
+
+    public Set<String> vaultUsers() {
+        return index.keySet();
+    }
+
+    /**
+     * Reads one user's vault from its shard.
+     * @return a mutable map, empty if the user has no shard yet.
+     */
+    public Map<String, PasswordEntry> readVault(String username) throws IOException {
+        Map<String, PasswordEntry> vault = new ConcurrentHashMap<>();
+        String fileName = index.get(username);
+        if (fileName == null) {
+            return vault;
+        }
+        if (fileName.startsWith(LEGACY_PREFIX)) {
+            vault.putAll(readLegacyVault(fileName));
+            return vault;
+        }
+        File shard = new File(shardDir, fileName);
+        if (fileName.endsWith(BinaryVaultFormat.EXTENSION)) {
+            BinaryVaultFormat.readVault(shard, vault);
+        } else {
+            vault.putAll(objectMapper.readValue(shard, new TypeReference<Map<String, PasswordEntry>>() {}));
+        }
+        return vault;
+    }
+
+    /**
+     * Size of a user's shard on disk, in bytes (0 if the user has none).
+     */
+    public long vaultSize(String username) {
+        String fileName = index.get(username);
+        if (fileName == null) {
+            return 0;
+        }
+        return fileName.startsWith(LEGACY_PREFIX) ? legacyRange(fileName)[1] : new File(shardDir, fileName).length();
+    }
+
+    /**
+     * Replaces one user's shard. New users are added to the in-memory index; call {@link #writeIndex()}
+     * once all shards of a batch are written to persist it.
+     * @return true if the index changed.
+     */
+    public boolean writeVault(String username, Map<String, PasswordEntry> vault) throws IOException {
+        String fileName = shardFileName(username);
+        writeAtomically(new File(shardDir, fileName), BinaryVaultFormat.encodeVault(vault));
+        String previous = index.put(username, fileName);
+        if (previous != null && !previous.equals(fileName) && !previous.startsWith(LEGACY_PREFIX)) {
+            obsoleteShards.add(previous); // Shard converted from JSON
+        }
+        return !fileName.equals(previous);
+    }
+
+    /**
+     * Persists the index, then deletes the shards it no longer lists.
+     * Once no vault points into the legacy passwords.json any more, the file is retired.
+     */
+    public void writeIndex() throws IOException {
+        writeAtomically(indexFile, objectMapper.writeValueAsBytes(new HashMap<>(index)));
+        for (String fileName : obsoleteShards) {
+            Files.deleteIfExists(new File(shardDir, fileName).toPath());
+            obsoleteShards.remove(fileName);
+        }
+        if (legacyPasswordsFile != null && legacyPasswordsFile.exists()
+                && index.values().stream().noneMatch(fileName -> fileName.startsWith(LEGACY_PREFIX))) {
+            retire(legacyPasswordsFile);
+            System.out.println("All vaults moved out of " + legacyPasswordsFile.getName() + ", file retired.");
+        }
+    }
+
+    /**
+     * Moves every vault still stored in the legacy passwords.json to its own shard.
+     */
+    public void convertLegacyVaults() throws IOException {
+        boolean converted = false;
+        for (Map.Entry<String, String> entry : new HashMap<>(index).entrySet()) {
+            if (entry.getValue().startsWith(LEGACY_PREFIX)) {
+                writeVault(entry.getKey(), readLegacyVault(entry.getValue()));
+                converted = true;
+            }
+        }
+        if (converted) {
+            writeIndex();
+        }
+    }
+
+    private void migrateLegacyUsers() throws IOException {
+        Map<String, String[]> legacy = objectMapper.readValue(legacyUsersFile, new TypeReference<Map<String, String[]>>() {});
+        writeCredentials(legacy);
+        retire(legacyUsersFile);
+        System.out.println("Converted " + legacyUsersFile.getName() + " to " + credentialsFile.getName() + ".");
+    }
+
+    /**
+     * Records the byte range of each user's section of passwords.json, without building any entry.
+     */
+    private void indexLegacyPasswords() throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(legacyPasswordsFile)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException(legacyPasswordsFile.getName() + " does not contain a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String username = parser.getCurrentName();
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    parser.skipChildren(); // null or malformed section, nothing to load
+                    continue;
+                }
+                long start = parser.getTokenLocation().getByteOffset();
+                parser.skipChildren();
+                long end = parser.getCurrentLocation().getByteOffset();
+                index.put(username, LEGACY_PREFIX + start + "+" + (end - start));
+            }
+        }
+        writeIndex();
+        System.out.println("Indexed " + index.size() + " vaults in " + legacyPasswordsFile.getName() + ".");
+    }
+
+    private Map<String, PasswordEntry> readLegacyVault(String location) throws IOException {
+        long[] range = legacyRange(location);
+        byte[] section = new byte[(int) range[1]];
+        try (RandomAccessFile file = new RandomAccessFile(legacyPasswordsFile, "r")) {
+            file.seek(range[0]);
+            file.readFully(section);
+        }
+        return objectMapper.readValue(section, new TypeReference<Map<String, PasswordEntry>>() {});
+    }
+
+    private static long[] legacyRange(String location) {
+        int plus = location.indexOf('+');
+        return new long[]{Long.parseLong(location.substring(LEGACY_PREFIX.length(), plus)),
+                Long.parseLong(location.substring(plus + 1))};
+    }
+
+    /**
+     * Keeps a converted legacy file aside rather than deleting it.
+     */
+    private static void retire(File legacyFile) throws IOException {
+        File migrated = new File(legacyFile.getPath() + ".migrated");
+        Files.move(legacyFile.toPath(), migrated.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        forceDirectory(migrated.getAbsoluteFile().getParentFile().toPath());
+    }
+
+    /**
+     * Shard file name for a user: hex-encoded so that any username maps to a distinct,
+     * portable file name, even on case-insensitive file systems.
+     */
+    private static String shardFileName(String username) {
+        StringBuilder name = new StringBuilder();
+        for (byte b : username.getBytes(StandardCharsets.UTF_8)) {
+            name.append(String.format("%02x", b));
+        }
+        return name.append(BinaryVaultFormat.EXTENSION).toString();
+    }
+
+    /**
+     * Writes next to the final location, then moves the file into place
+     * so that a crash never leaves a half-written file behind.
+     * The content is forced to the device before the move and the directory after it, so that once this
+     * returns the new file survives a power loss, and the log records it replaces can be deleted.
+     */
+    private void writeAtomically(File target, byte[] content) throws IOException {
+        File parent = target.getAbsoluteFile().getParentFile();
+        if (!parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Unable to create directory " + parent);
+        }
+        Path tmp = new File(target.getPath() + ".tmp").toPath();
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(tmp, target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory(parent.toPath());
+    }
+
+    /**
+     * Makes the renames in a directory durable.
+     */
+    static void forceDirectory(Path dir) throws IOException {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Directories cannot be opened on some platforms (Windows), where renames are durable anyway
+            if (!System.getProperty("os.name").startsWith("Windows")) {
+                throw e;
+            }
+        }
+    }
+}
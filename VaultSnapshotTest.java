@@ -0,0 +1,104 @@
+package com.passwordmanager.server;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.passwordmanager.common.PasswordEntry;
+
+public class VaultSnapshotTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testShardsRoundTripThroughIndex() throws Exception {
+        File shardDir = tempDir.resolve("vaults").toFile();
+        VaultSnapshot snapshot = new VaultSnapshot(shardDir, objectMapper);
+        snapshot.open();
+        Map<String, PasswordEntry> alice = new HashMap<>();
+        alice.put("a.com", new PasswordEntry("a.com", "alice_a", "ZW5jMQ=="));
+        Map<String, PasswordEntry> bob = new HashMap<>();
+        bob.put("b.com", new PasswordEntry("b.com", "bob_b", "ZW5jMg=="));
+        assertTrue(snapshot.writeVault("alice", alice), "A new user should change the index");
+        assertTrue(snapshot.writeVault("Bob", bob));
+        snapshot.writeIndex();
+        alice.put("c.com", new PasswordEntry("c.com", "alice_c", "ZW5jMw=="));
+        assertFalse(snapshot.writeVault("alice", alice), "Rewriting a shard should not change the index");
+
+        Map<String, String> index = objectMapper.readValue(new File(shardDir, "index.json"),
+                new TypeReference<Map<String, String>>() {});
+        assertEquals(2, index.size());
+        assertTrue(new File(shardDir, index.get("alice")).exists(), "Each user should have a shard of their own");
+        assertFalse(index.get("alice").equalsIgnoreCase(index.get("Bob")));
+
+        VaultSnapshot reopened = new VaultSnapshot(shardDir, objectMapper);
+        reopened.open();
+        assertEquals(2, reopened.vaultUsers().size());
+        assertEquals(2, reopened.readVault("alice").size(), "The last write of a shard should be read back");
+        assertEquals("ZW5jMg==", reopened.readVault("Bob").get("b.com").getPassword());
+        assertTrue(reopened.readVault("carol").isEmpty(), "A user without a shard has an empty vault");
+    }
+
+    @Test
+    public void testCredentialsRoundTrip() throws Exception {
+        File shardDir = tempDir.resolve("vaults").toFile();
+        VaultSnapshot snapshot = new VaultSnapshot(shardDir, objectMapper);
+        assertFalse(snapshot.exists());
+        Map<String, String[]> credentials = new HashMap<>();
+        credentials.put("alice", new String[]{"aGFzaA==", "c2FsdA=="});
+        snapshot.writeCredentials(credentials);
+
+        Map<String, String[]> read = new HashMap<>();
+        new VaultSnapshot(shardDir, objectMapper).readCredentials(read);
+        assertEquals("aGFzaA==", read.get("alice")[0]);
+        assertEquals("c2FsdA==", read.get("alice")[1]);
+    }
+
+    @Test
+    public void testLegacyPasswordsIndexedThenRetired() throws Exception {
+        File legacyUsers = tempDir.resolve("users.json").toFile();
+        File legacyPasswords = tempDir.resolve("passwords.json").toFile();
+        Files.write(legacyUsers.toPath(), "{\"alice\":[\"aGFzaA==\",\"c2FsdA==\"]}".getBytes());
+        Files.write(legacyPasswords.toPath(), ("{\"alice\":{\"a.com\":{\"website\":\"a.com\",\"username\":\"alice_a\","
+                + "\"password\":\"ZW5jMQ==\"}},\"nobody\":null,"
+                + "\"bob\":{\"b.com\":{\"website\":\"b.com\",\"username\":\"bob_b\",\"password\":\"ZW5jMg==\"}}}").getBytes());
+        File shardDir = tempDir.resolve("vaults").toFile();
+        VaultSnapshot snapshot = new VaultSnapshot(legacyUsers, legacyPasswords, shardDir, objectMapper);
+        snapshot.open();
+
+        Map<String, String> index = objectMapper.readValue(new File(shardDir, "index.json"),
+                new TypeReference<Map<String, String>>() {});
+        assertEquals(2, index.size(), "A null section should not be indexed");
+        assertTrue(index.get("alice").matches("@\\d+\\+\\d+"), "Legacy vaults should be indexed by byte range");
+        assertEquals("alice_a", snapshot.readVault("alice").get("a.com").getUsername());
+        assertEquals("ZW5jMg==", snapshot.readVault("bob").get("b.com").getPassword());
+        assertTrue(new File(legacyUsers.getPath() + ".migrated").exists(), "users.json should be converted up front");
+
+        // Moving one vault to its shard keeps the legacy file, which still holds the other one
+        snapshot.writeVault("alice", snapshot.readVault("alice"));
+        snapshot.writeIndex();
+        assertTrue(legacyPasswords.exists());
+        snapshot.writeVault("bob", snapshot.readVault("bob"));
+        snapshot.writeIndex();
+        assertFalse(legacyPasswords.exists(), "passwords.json should be retired once no vault points into it");
+        assertTrue(new File(legacyPasswords.getPath() + ".migrated").exists());
+
+        VaultSnapshot reopened = new VaultSnapshot(legacyUsers, legacyPasswords, shardDir, objectMapper);
+        reopened.open();
+        assertEquals("alice_a", reopened.readVault("alice").get("a.com").getUsername());
+        assertEquals(1, reopened.readVault("bob").size());
+    }
+}
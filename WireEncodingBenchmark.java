@@ -0,0 +1,105 @@
+package com.passwordmanager.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import com.passwordmanager.common.PackedEntryList;
+import com.passwordmanager.common.PasswordEntry;
+
+/**
+ * Compares the size and the serialization round-trip time of entry lists in the encodings RMI can use:
+ * default serialization of an entry (as PasswordEntry was before it became Externalizable),
+ * Externalizable entries in an ArrayList, a PackedEntryList, and a PackedEntryList deflated as by
+ * CompressingSocketFactory. Lists are measured without passwords (listPasswordMetadata, pages, search)
+ * and with them (listPasswords).
+ * Run with: java -cp target/classes com.passwordmanager.server.WireEncodingBenchmark
+ */
+public class WireEncodingBenchmark {
+
+    private static final int[] SIZES = {100, 10000};
+    private static final int DISTINCT_USERNAMES = 20;
+    private static final long MIN_RUN_NANOS = 200_000_000L;
+
+    // PasswordEntry as it was serialized before: default serialization of its three fields
+    private static class SerializableEntry implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final String website;
+        private final String username;
+        private final String password;
+
+        SerializableEntry(String website, String username, String password) {
+            this.website = website;
+            this.username = username;
+            this.password = password;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.out.printf("%-14s %8s %-26s %14s %14s%n", "list", "entries", "encoding", "bytes/entry", "round trip us");
+        for (boolean withPasswords : new boolean[]{false, true}) {
+            for (int size : SIZES) {
+                List<PasswordEntry> entries = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    entries.add(new PasswordEntry("site" + i + ".example.com", "user" + (i % DISTINCT_USERNAMES) + "@mail.com",
+                            withPasswords ? "Passw0rd!" + i : null));
+                }
+                String list = withPasswords ? "passwords" : "metadata";
+                List<SerializableEntry> legacy = new ArrayList<>(size);
+                for (PasswordEntry entry : entries) {
+                    legacy.add(new SerializableEntry(entry.getWebsite(), entry.getUsername(), entry.getPassword()));
+                }
+                report(list, size, "Serializable (before)", new ArrayList<>(legacy), out -> out);
+                report(list, size, "Externalizable ArrayList", new ArrayList<>(entries), out -> out);
+                report(list, size, "PackedEntryList", new PackedEntryList(entries), out -> out);
+                report(list, size, "PackedEntryList + deflate", new PackedEntryList(entries),
+                        out -> new DeflaterOutputStream(out, new Deflater(Deflater.BEST_SPEED), true));
+            }
+        }
+    }
+
+    private static void report(String list, int size, String encoding, Object value,
+                               Function<OutputStream, OutputStream> wrapper) throws Exception {
+        int bytes = serialize(value, wrapper).length;
+        // Warm up, then measure serialization plus deserialization of the uncompressed stream
+        measure(value, wrapper);
+        double nanos = measure(value, wrapper);
+        System.out.printf("%-14s %8d %-26s %14.1f %14.1f%n", list, size, encoding, (double) bytes / size, nanos / 1000);
+    }
+
+    private static byte[] serialize(Object value, Function<OutputStream, OutputStream> wrapper) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        OutputStream out = wrapper.apply(buffer);
+        try (ObjectOutputStream objectOut = new ObjectOutputStream(out)) {
+            objectOut.writeObject(value);
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * @return the average duration of one serialization and deserialization, in nanoseconds.
+     */
+    private static double measure(Object value, Function<OutputStream, OutputStream> wrapper) throws Exception {
+        long runs = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            serialize(value, wrapper);
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialize(value, out -> out)))) {
+                in.readObject();
+            }
+            runs++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < MIN_RUN_NANOS);
+        return (double) elapsed / runs;
+    }
+}
@@ -0,0 +1,195 @@
+package com.passwordmanager.server;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Append-only log of vault mutations, one JSON record per line.
+ * Each mutation costs a single small append instead of a rewrite of the whole snapshot;
+ * the log is replayed on top of the last snapshot at startup.
+ */
+public class WriteAheadLog implements Closeable {
+
+    private final File file;
+    private final ObjectMapper objectMapper;
+    private FileOutputStream out;
+
+    /**
+     * A complete record of a log cannot be read, or cannot be applied. Unlike a torn tail, this is not
+     * left by a crash, so the log is kept as it is for inspection rather than cut short.
+     */
+    public static class CorruptLogException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        CorruptLogException(File file, long offset, Throwable cause) {
+            super("Corrupted record in " + file.getName() + " at offset " + offset, cause);
+        }
+    }
+
+    public WriteAheadLog(File file, ObjectMapper objectMapper) throws IOException {
+        this.file = file;
+        this.objectMapper = objectMapper;
+        this.out = new FileOutputStream(file, true);
+    }
+
+    /**
+     * Appends one record to the end of the log.
+     */
+    public synchronized void append(LogRecord record) throws IOException {
+        byte[] line = objectMapper.writeValueAsBytes(record);
+        byte[] buffer = new byte[line.length + 1];
+        System.arraycopy(line, 0, buffer, 0, line.length);
+        buffer[line.length] = '\n';
+        out.write(buffer); // Single write so a record is never interleaved with another one
+    }
+
+    /**
+     * Appends a batch of records with a single write.
+     */
+    public synchronized void appendAll(List<LogRecord> records) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        for (LogRecord record : records) {
+            buffer.write(objectMapper.writeValueAsBytes(record));
+            buffer.write('\n');
+        }
+        out.write(buffer.toByteArray());
+    }
+
+    /**
+     * Forces everything appended so far to the storage device.
+     */
+    public synchronized void force() throws IOException {
+        out.getChannel().force(false);
+    }
+
+    /**
+     * Current size of the active log file, in bytes.
+     */
+    public synchronized long size() throws IOException {
+        return out.getChannel().size();
+    }
+
+    /**
+     * Seals the active log under the next segment number and starts a fresh, empty one.
+     * Appends made after this call land in the new file, so sealed segments can be
+     * folded into a snapshot without holding up writers.
+     * @return the sealed segment.
+     */
+    public synchronized File rotate() throws IOException {
+        // Records appended but not yet forced are forced now: the flusher only forces the active file
+        out.getChannel().force(false);
+        out.close();
+        List<File> sealed = sealedSegments(file);
+        long next = sealed.isEmpty() ? 1 : segmentNumber(file, sealed.get(sealed.size() - 1)) + 1;
+        File segment = new File(file.getPath() + "." + next);
+        if (!file.renameTo(segment)) {
+            out = new FileOutputStream(file, true);
+            throw new IOException("Unable to seal " + file.getName() + " as " + segment.getName());
+        }
+        out = new FileOutputStream(file, true);
+        VaultSnapshot.forceDirectory(file.getAbsoluteFile().getParentFile().toPath());
+        return segment;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+
+    /**
+     * Lists the sealed segments of the given log, oldest first.
+     */
+    public static List<File> sealedSegments(File file) {
+        List<File> segments = new ArrayList<>();
+        File dir = file.getAbsoluteFile().getParentFile();
+        File[] candidates = dir.listFiles((d, name) -> name.startsWith(file.getName() + ".")
+                && name.substring(file.getName().length() + 1).matches("[0-9]+"));
+        if (candidates != null) {
+            for (File candidate : candidates) {
+                segments.add(new File(file.getParentFile(), candidate.getName()));
+            }
+        }
+        segments.sort(Comparator.comparingLong(segment -> segmentNumber(file, segment)));
+        return segments;
+    }
+
+    private static long segmentNumber(File file, File segment) {
+        return Long.parseLong(segment.getName().substring(file.getName().length() + 1));
+    }
+
+    /**
+     * Replays every complete record of the given log file in order.
+     * A torn record left by a crash in the middle of an append, which can only be the last line
+     * since each record and its newline are written at once, is dropped and truncated away,
+     * so that the next append starts on a clean line.
+     * @return the number of records replayed.
+     * @throws CorruptLogException if a complete line cannot be read or applied; the file is left untouched.
+     */
+    public static int replay(File file, ObjectMapper objectMapper, Consumer<LogRecord> consumer) throws IOException {
+        return replay(file, objectMapper, consumer, true);
+    }
+
+    /**
+     * Reads every complete record of the given log file in order, like {@link #replay}, but never changes
+     * the file: an incomplete last line is skipped. Unlike replay, it is safe on a log that the server may be
+     * appending to, where the last line can be a record being written rather than a torn one.
+     * @return the number of records read.
+     */
+    public static int read(File file, ObjectMapper objectMapper, Consumer<LogRecord> consumer) throws IOException {
+        return replay(file, objectMapper, consumer, false);
+    }
+
+    private static int replay(File file, ObjectMapper objectMapper, Consumer<LogRecord> consumer,
+                              boolean truncate) throws IOException {
+        if (!file.exists()) {
+            return 0;
+        }
+        int count = 0;
+        long validLength = 0;
+        long position = 0;
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            int b;
+            while ((b = in.read()) != -1) {
+                position++;
+                if (b != '\n') {
+                    line.write(b);
+                    continue;
+                }
+                if (line.size() > 0) {
+                    LogRecord record;
+                    try {
+                        record = objectMapper.readValue(line.toByteArray(), LogRecord.class);
+                        record.check();
+                    } catch (IOException | IllegalArgumentException e) {
+                        throw new CorruptLogException(file, validLength, e);
+                    }
+                    consumer.accept(record);
+                    count++;
+                }
+                line.reset();
+                validLength = position;
+            }
+        }
+        if (truncate && validLength < file.length()) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(validLength);
+            }
+            System.err.println("Truncated incomplete tail of " + file.getName() + " at offset " + validLength + ".");
+        }
+        return count;
+    }
+}
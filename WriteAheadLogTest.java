@@ -0,0 +1,123 @@
+package com.passwordmanager.server;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.passwordmanager.common.PasswordEntry;
+
+public class WriteAheadLogTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testReplayRebuildsState() throws Exception {
+        File logFile = tempDir.resolve("vault.wal").toFile();
+        try (WriteAheadLog log = new WriteAheadLog(logFile, objectMapper)) {
+            log.append(LogRecord.register("alice", new String[]{"hash", "salt"}));
+            log.append(LogRecord.put("alice", new PasswordEntry("a.com", "alice_a", "enc1")));
+            log.append(LogRecord.put("alice", new PasswordEntry("b.com", "alice_b", "enc2")));
+            log.append(LogRecord.delete("alice", "a.com"));
+        }
+
+        Map<String, String[]> credentials = new ConcurrentHashMap<>();
+        Map<String, Map<String, PasswordEntry>> passwords = new ConcurrentHashMap<>();
+        int replayed = WriteAheadLog.replay(logFile, objectMapper, record -> record.applyTo(credentials, passwords));
+
+        assertEquals(4, replayed, "Every appended record should be replayed");
+        assertEquals("hash", credentials.get("alice")[0]);
+        assertEquals(1, passwords.get("alice").size(), "Deleted entry should not be restored");
+        assertEquals("enc2", passwords.get("alice").get("b.com").getPassword());
+    }
+
+    @Test
+    public void testTornTailIsTruncated() throws Exception {
+        File logFile = tempDir.resolve("vault.wal").toFile();
+        try (WriteAheadLog log = new WriteAheadLog(logFile, objectMapper)) {
+            log.append(LogRecord.register("bob", new String[]{"hash", "salt"}));
+        }
+        long validLength = logFile.length();
+        // Simulate a crash in the middle of an append
+        try (FileOutputStream out = new FileOutputStream(logFile, true)) {
+            out.write("{\"op\":\"PUT\",\"us".getBytes());
+        }
+
+        List<LogRecord> records = new ArrayList<>();
+        assertEquals(1, WriteAheadLog.replay(logFile, objectMapper, records::add));
+        assertEquals(validLength, logFile.length(), "Incomplete record should be truncated");
+
+        // Appending after recovery must produce a readable log again
+        try (WriteAheadLog log = new WriteAheadLog(logFile, objectMapper)) {
+            log.append(LogRecord.delete("bob", "x.com"));
+        }
+        records.clear();
+        assertEquals(2, WriteAheadLog.replay(logFile, objectMapper, records::add));
+        assertEquals(LogRecord.Op.REGISTER, records.get(0).getOp());
+        assertEquals(LogRecord.Op.DELETE, records.get(1).getOp());
+    }
+
+    @Test
+    public void testCorruptMiddleLineIsNotTruncated() throws Exception {
+        File logFile = tempDir.resolve("vault.wal").toFile();
+        try (WriteAheadLog log = new WriteAheadLog(logFile, objectMapper)) {
+            log.append(LogRecord.register("carol", new String[]{"hash", "salt"}));
+        }
+        // A complete but unreadable line, followed by valid records
+        try (FileOutputStream out = new FileOutputStream(logFile, true)) {
+            out.write("{\"op\":\"PU#garbage\n".getBytes());
+        }
+        try (WriteAheadLog log = new WriteAheadLog(logFile, objectMapper)) {
+            log.append(LogRecord.put("carol", new PasswordEntry("c.com", "carol_c", "enc")));
+        }
+        long length = logFile.length();
+
+        List<LogRecord> records = new ArrayList<>();
+        assertThrows(WriteAheadLog.CorruptLogException.class,
+                () -> WriteAheadLog.replay(logFile, objectMapper, records::add));
+        assertEquals(length, logFile.length(), "Records after the corrupt line must be kept");
+    }
+
+    @Test
+    public void testRecordThatCannotBeAppliedIsCorrupt() throws Exception {
+        File logFile = tempDir.resolve("vault.wal").toFile();
+        try (WriteAheadLog log = new WriteAheadLog(logFile, objectMapper)) {
+            log.append(LogRecord.register("dave", new String[]{"hash", "salt"}));
+            log.append(LogRecord.put("dave", new PasswordEntry(null, "dave_d", "enc")));
+        }
+
+        List<LogRecord> records = new ArrayList<>();
+        assertThrows(WriteAheadLog.CorruptLogException.class,
+                () -> WriteAheadLog.replay(logFile, objectMapper, records::add));
+        assertEquals(1, records.size(), "Records before the bad one should still be replayed");
+    }
+
+    @Test
+    public void testReadLeavesIncompleteTail() throws Exception {
+        File logFile = tempDir.resolve("vault.wal").toFile();
+        try (WriteAheadLog log = new WriteAheadLog(logFile, objectMapper)) {
+            log.append(LogRecord.register("erin", new String[]{"hash", "salt"}));
+        }
+        // A record still being appended by the server
+        try (FileOutputStream out = new FileOutputStream(logFile, true)) {
+            out.write("{\"op\":\"PUT\",\"us".getBytes());
+        }
+        long length = logFile.length();
+
+        List<LogRecord> records = new ArrayList<>();
+        assertEquals(1, WriteAheadLog.read(logFile, objectMapper, records::add));
+        assertEquals(length, logFile.length(), "Reading a log must not truncate it");
+    }
+}